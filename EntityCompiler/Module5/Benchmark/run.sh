@@ -0,0 +1,2 @@
+mvn -q clean package
+java -jar target/benchmarks.jar -prof gc -rf json -rff target/results.json $@
@@ -0,0 +1,37 @@
+package com.example.benchmark;
+
+import com.example.dto.ZDPlayerDto;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A batch of valid player DTOs. The sizes straddle the controller's parallel threshold
+// so both the sequential and the fork/join validation paths are measured.
+@State(Scope.Thread)
+public class PlayerBatchFixture {
+    @Param({"100", "10000"})
+    public int batchSize;
+
+    public List<ZDPlayerDto> dtoObjects;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dtoObjects = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            ZDPlayerDto dtoObject = new ZDPlayerDto();
+            dtoObject.setFirstName("Player" + i);
+            dtoObject.setLastName("Skyrunner");
+            dtoObject.setExperiencePoints(i);
+            dtoObject.setLevel(i % 12);
+            dtoObject.setHealth(10);
+            dtoObject.setMagicEnergy(50);
+            dtoObject.setCoins(250000);
+            dtoObjects.add(dtoObject);
+        }
+    }
+}
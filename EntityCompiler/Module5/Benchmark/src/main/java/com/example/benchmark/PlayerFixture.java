@@ -0,0 +1,33 @@
+package com.example.benchmark;
+
+import com.example.dto.ZDPlayerDto;
+import com.example.model.ZMPlayer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+// Player objects that pass every constraint, so the benchmarks measure the
+// happy path that a successful POST takes.
+@State(Scope.Thread)
+public class PlayerFixture {
+    public ZDPlayerDto dtoObject;
+    public ZMPlayer modelObject;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dtoObject = new ZDPlayerDto();
+        dtoObject.setId(UUID.randomUUID());
+        dtoObject.setFirstName("Lance");
+        dtoObject.setLastName("Skyrunner");
+        dtoObject.setExperiencePoints(1000);
+        dtoObject.setLevel(2);
+        dtoObject.setHealth(10);
+        dtoObject.setMagicEnergy(50);
+        dtoObject.setCoins(250000);
+
+        modelObject = ZMPlayer.fromDTO(dtoObject);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.benchmark;
+
+import com.example.BatchValidationException;
+import com.example.ValidationException;
+import com.example.controller.ZAPlayerController;
+import com.example.dto.ZDPlayerDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the class generated by ControllerClassTemplate. This is the full
+// POST path: validate, map to the model, assign a key and map back.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZAPlayerControllerBenchmark {
+    private final ZAPlayerController controller = new ZAPlayerController();
+
+    @Benchmark
+    public ZDPlayerDto createPlayer(PlayerFixture fixture) throws ValidationException {
+        return controller.createPlayer(fixture.dtoObject);
+    }
+
+    @Benchmark
+    public List<ZDPlayerDto> createPlayerBatch(PlayerBatchFixture fixture) throws BatchValidationException {
+        return controller.createPlayerBatch(fixture.dtoObjects);
+    }
+}
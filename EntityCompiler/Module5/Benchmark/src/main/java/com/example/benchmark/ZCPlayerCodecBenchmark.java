@@ -0,0 +1,52 @@
+package com.example.benchmark;
+
+import com.example.codec.ZCPlayerCodec;
+import com.example.dto.ZDPlayerDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the class generated by CodecClassTemplate. The buffers are reused so
+// encoding should report no allocation and decoding only the DTO and its strings.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ZCPlayerCodecBenchmark {
+    private ByteBuffer encodeBuffer;
+    private ByteBuffer decodeBuffer;
+
+    @Setup(Level.Trial)
+    public void setup(PlayerFixture fixture) {
+        encodeBuffer = ByteBuffer.allocate(ZCPlayerCodec.maxEncodedSize(fixture.dtoObject));
+        decodeBuffer = ByteBuffer.allocate(ZCPlayerCodec.maxEncodedSize(fixture.dtoObject));
+        ZCPlayerCodec.encode(fixture.dtoObject, decodeBuffer);
+        decodeBuffer.flip();
+    }
+
+    @Benchmark
+    public int encode(PlayerFixture fixture) {
+        encodeBuffer.clear();
+        ZCPlayerCodec.encode(fixture.dtoObject, encodeBuffer);
+        return encodeBuffer.position();
+    }
+
+    @Benchmark
+    public ZDPlayerDto decode() {
+        decodeBuffer.rewind();
+        return ZCPlayerCodec.decode(decodeBuffer);
+    }
+}
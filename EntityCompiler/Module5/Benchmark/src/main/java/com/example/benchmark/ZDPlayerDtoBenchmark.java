@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import com.example.dto.ZDPlayerDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the class generated by DTOClassTemplate, including one benchmark per
+// generated constraint check.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZDPlayerDtoBenchmark {
+
+    @Benchmark
+    public ZDPlayerDto fromModel(PlayerFixture fixture) {
+        return ZDPlayerDto.fromModel(fixture.modelObject);
+    }
+
+    @Benchmark
+    public List<String> firstNameConstraintsViolated(PlayerFixture fixture) {
+        return fixture.dtoObject.firstNameConstraintsViolated();
+    }
+
+    @Benchmark
+    public List<String> lastNameConstraintsViolated(PlayerFixture fixture) {
+        return fixture.dtoObject.lastNameConstraintsViolated();
+    }
+
+    @Benchmark
+    public List<String> levelConstraintsViolated(PlayerFixture fixture) {
+        return fixture.dtoObject.levelConstraintsViolated();
+    }
+
+    @Benchmark
+    public int firstNameConstraintsViolatedMask(PlayerFixture fixture) {
+        return fixture.dtoObject.firstNameConstraintsViolatedMask();
+    }
+
+    @Benchmark
+    public int lastNameConstraintsViolatedMask(PlayerFixture fixture) {
+        return fixture.dtoObject.lastNameConstraintsViolatedMask();
+    }
+
+    @Benchmark
+    public int levelConstraintsViolatedMask(PlayerFixture fixture) {
+        return fixture.dtoObject.levelConstraintsViolatedMask();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.benchmark;
+
+import com.example.model.ZMPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the class generated by ModelClassTemplate.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZMPlayerBenchmark {
+
+    @Benchmark
+    public ZMPlayer fromDTO(PlayerFixture fixture) {
+        return ZMPlayer.fromDTO(fixture.dtoObject);
+    }
+}
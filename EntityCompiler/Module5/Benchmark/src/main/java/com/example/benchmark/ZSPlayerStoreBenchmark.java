@@ -0,0 +1,88 @@
+package com.example.benchmark;
+
+import com.example.model.ZMPlayer;
+import com.example.store.ZSPlayerStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Compares scanning and looking up players kept in a HashMap of model objects (as the
+// Main class originally did) with the same players kept in the generated column store.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZSPlayerStoreBenchmark {
+    @Param({"1000000"})
+    public int playerCount;
+
+    private Map<UUID, ZMPlayer> playerById;
+    private ZSPlayerStore store;
+    private UUID[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        playerById = new HashMap<>();
+        store = new ZSPlayerStore(playerCount);
+        ids = new UUID[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            ZMPlayer player = new ZMPlayer();
+            player.setId(UUID.randomUUID());
+            player.setFirstName("Player" + i);
+            player.setLastName("Skyrunner");
+            player.setCoins(i);
+            player.setLevel(i % 12);
+            playerById.put(player.getId(), player);
+            store.put(player);
+            ids[i] = player.getId();
+        }
+    }
+
+    @Benchmark
+    public long mapSumCoins() {
+        long total = 0;
+        for (ZMPlayer player : playerById.values()) {
+            total += player.getCoins();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long storeSumCoins() {
+        return store.sumCoins();
+    }
+
+    @Benchmark
+    public int storeRowsWhereLevel() {
+        return store.rowsWhereLevel(level -> level == 11).length;
+    }
+
+    @Benchmark
+    public long mapLookup() {
+        UUID id = ids[next++ % ids.length];
+        return playerById.get(id).getCoins();
+    }
+
+    @Benchmark
+    public long storeLookup() {
+        UUID id = ids[next++ % ids.length];
+        return store.view().at(store.rowOf(id)).getCoins();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.benchmark;
+
+import com.example.model.ZMPlayer;
+import com.example.store.ZSPlayerStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Compares restarting a store from its snapshot with restarting it from a log holding
+// one record per player, which is what a store that never checkpoints ends up with.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZSPlayerStoreRestartBenchmark {
+    @Param({"1000000"})
+    public int playerCount;
+
+    private Path directory;
+    private Path snapshotFile;
+    private Path missingSnapshotFile;
+    private Path logFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("players");
+        snapshotFile = directory.resolve("players.snapshot");
+        missingSnapshotFile = directory.resolve("missing.snapshot");
+        logFile = directory.resolve("players.log");
+        try (ZSPlayerStore store = ZSPlayerStore.open(missingSnapshotFile, logFile)) {
+            for (int i = 0; i < playerCount; i++) {
+                ZMPlayer player = new ZMPlayer();
+                player.setId(UUID.randomUUID());
+                player.setFirstName("Player" + i);
+                player.setLastName("Skyrunner");
+                player.setCoins(i);
+                player.setLevel(i % 12);
+                store.put(player);
+            }
+            store.writeSnapshot(snapshotFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(logFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public ZSPlayerStore readSnapshot() throws IOException {
+        return ZSPlayerStore.readSnapshot(snapshotFile);
+    }
+
+    @Benchmark
+    public ZSPlayerStore replayLog() throws IOException {
+        try (ZSPlayerStore store = ZSPlayerStore.open(missingSnapshotFile, logFile)) {
+            return store;
+        }
+    }
+}
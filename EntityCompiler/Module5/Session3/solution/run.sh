@@ -1,4 +1,4 @@
 ec build Tutorial ec/Space.edl ec/Configuration.edl ec/Units.edl ec/Domains.edl -tp ec/templates
 rm -rf classes ; mkdir classes
-javac  -d classes src/com/example/model/*.java src/com/example/Main.java
+javac  -d classes src/com/example/model/*.java src/com/example/*.java
 java -cp classes com.example.Main
\ No newline at end of file
@@ -4,16 +4,14 @@ import com.example.model.ZMPlayer;
 import com.example.model.ZMPlayerMagicSpell;
 import com.example.model.ZMMagicSpell;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 public class Main {
     private Map<UUID, ZMPlayer> playerById = new HashMap<>();
     private Map<UUID, ZMMagicSpell> magicSpellById = new HashMap<>();
-    private List<ZMPlayerMagicSpell> playerMagicSpells = new ArrayList<>();
+    private RelationshipIndex<UUID, ZMPlayerMagicSpell> playerMagicSpellsByPlayerId = new RelationshipIndex<>();
 
     public static void main(String[] args) {
         Main main = new Main();
@@ -42,18 +40,19 @@ public class Main {
 
         ZMPlayerMagicSpell player1Transport = new ZMPlayerMagicSpell();
         player1Transport.setId(UUID.randomUUID());
+        player1Transport.indexByPlayerId(playerMagicSpellsByPlayerId);
         player1Transport.setPlayerId(player1.getId());
         player1Transport.setMagicSpellId(transport.getId());
         player1Transport.setRemainingCasts(2);
-        playerMagicSpells.add(player1Transport);
     }
 
     private void printPlayerMagicSpells() {
-        for (ZMPlayerMagicSpell playerMagicSpell : playerMagicSpells) {
-            ZMPlayer player = playerById.get(playerMagicSpell.getPlayerId());
-            ZMMagicSpell magicSpell = magicSpellById.get(playerMagicSpell.getMagicSpellId());
-            String spellPlural = playerMagicSpell.getRemainingCasts() == 1 ? "spell" : "spells";
-            System.out.println(player.getFullName() + " has " + playerMagicSpell.getRemainingCasts() + " " + magicSpell.getName() + " magic " + spellPlural);
+        for (ZMPlayer player : playerById.values()) {
+            for (ZMPlayerMagicSpell playerMagicSpell : playerMagicSpellsByPlayerId.find(player.getId())) {
+                ZMMagicSpell magicSpell = magicSpellById.get(playerMagicSpell.getMagicSpellId());
+                String spellPlural = playerMagicSpell.getRemainingCasts() == 1 ? "spell" : "spells";
+                System.out.println(player.getFullName() + " has " + playerMagicSpell.getRemainingCasts() + " " + magicSpell.getName() + " magic " + spellPlural);
+            }
         }
     }
 }
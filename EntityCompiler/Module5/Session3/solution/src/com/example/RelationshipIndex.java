@@ -0,0 +1,37 @@
+package com.example;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// The objects of one store grouped by the key of a to-one relationship, so the objects
+// referring to a key can be found without looking at every object. The store creates it and
+// hands it to each object's indexBy method; from then on the relationship's set method moves
+// the object from its old key to its new one. Like the store's other collections it is not
+// thread safe.
+public final class RelationshipIndex<K, V> {
+    private final Map<K, Set<V>> objectsByKey = new HashMap<>();
+
+    // Moves the object from the old key to the new key. Either key may be null.
+    public void move(K oldKey, K newKey, V object) {
+        if (oldKey != null) {
+            Set<V> objects = objectsByKey.get(oldKey);
+            if (objects != null && objects.remove(object) && objects.isEmpty()) {
+                objectsByKey.remove(oldKey);
+            }
+        }
+        if (newKey != null) {
+            objectsByKey.computeIfAbsent(newKey, k -> new LinkedHashSet<>()).add(object);
+        }
+    }
+
+    // Returns the objects that refer to the key, in the order they were added. The collection
+    // is a view that follows later changes.
+    public Collection<V> find(K key) {
+        Set<V> objects = objectsByKey.get(key);
+        return objects != null ? Collections.unmodifiableSet(objects) : Collections.emptySet();
+    }
+}
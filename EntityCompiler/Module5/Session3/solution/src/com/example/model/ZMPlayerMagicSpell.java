@@ -1,6 +1,7 @@
 package com.example.model;
 
 import java.util.UUID;
+import com.example.RelationshipIndex;
 
 // Represents a magic spell in a players inventory of spells.
 public class ZMPlayerMagicSpell
@@ -16,6 +17,12 @@ public class ZMPlayerMagicSpell
       // The magic spell the player has.
     private UUID magicSpellId;
 
+    // The store's index this object is kept in by playerId, or null if none
+    private RelationshipIndex<UUID, ZMPlayerMagicSpell> playerIdIndex;
+
+    // The store's index this object is kept in by magicSpellId, or null if none
+    private RelationshipIndex<UUID, ZMPlayerMagicSpell> magicSpellIdIndex;
+
     public UUID getId() {
         return id;
     }
@@ -37,17 +44,47 @@ public class ZMPlayerMagicSpell
     }
 
     public void setPlayerId(UUID value) {
+        if (playerIdIndex != null) {
+            playerIdIndex.move(this.playerId, value, this);
+        }
         this.playerId = value;
     }
 
+    // Keeps this object in a store's index by playerId, for finding the ones of a ZMPlayer.
+    // setPlayerId() keeps it up to date from then on. Pass null to take the object out again.
+    public void indexByPlayerId(RelationshipIndex<UUID, ZMPlayerMagicSpell> index) {
+        if (playerIdIndex != null) {
+            playerIdIndex.move(playerId, null, this);
+        }
+        playerIdIndex = index;
+        if (index != null) {
+            index.move(null, playerId, this);
+        }
+    }
+
     public UUID getMagicSpellId() {
         return magicSpellId;
     }
 
     public void setMagicSpellId(UUID value) {
+        if (magicSpellIdIndex != null) {
+            magicSpellIdIndex.move(this.magicSpellId, value, this);
+        }
         this.magicSpellId = value;
     }
 
+    // Keeps this object in a store's index by magicSpellId, for finding the ones of a ZMMagicSpell.
+    // setMagicSpellId() keeps it up to date from then on. Pass null to take the object out again.
+    public void indexByMagicSpellId(RelationshipIndex<UUID, ZMPlayerMagicSpell> index) {
+        if (magicSpellIdIndex != null) {
+            magicSpellIdIndex.move(magicSpellId, null, this);
+        }
+        magicSpellIdIndex = index;
+        if (index != null) {
+            index.move(null, magicSpellId, this);
+        }
+    }
+
 // =====preserve===== start-customClassCode =====
 // Add custom methods here
 // =====preserve===== end-customClassCode =====
@@ -1,4 +1,9 @@
-ec build Tutorial ec/Space.edl ec/Configuration.edl ec/Units.edl ec/Domains.edl -tp ec/templates
+ec-incremental build Tutorial ec/Space.edl ec/Configuration.edl ec/Units.edl ec/Domains.edl -tp ec/templates
+# compiles again if a source is newer than the classes or was added or removed since
+sources=$(find src -name '*.java' | sort)
+if [ ! -f classes/.compiled ] || [ "$sources" != "$(cat classes/.sources 2>/dev/null)" ] \
+        || [ -n "$(find src -name '*.java' -newer classes/.compiled | head -n 1)" ]; then
 rm -rf classes ; mkdir classes
-javac  -d classes src/com/example/model/*.java src/com/example/dto/*.java src/com/example/controller/*.java src/com/example/*.java
-java -cp classes com.example.Main
\ No newline at end of file
+javac  -d classes src/com/example/model/*.java src/com/example/dto/*.java src/com/example/controller/*.java src/com/example/store/*.java src/com/example/codec/*.java src/com/example/*.java && touch classes/.compiled && echo "$sources" > classes/.sources
+fi
+java -cp classes com.example.Main
@@ -0,0 +1,16 @@
+package com.example;
+
+import java.util.Map;
+
+public class BatchValidationException extends ValidationException {
+    private final Map<Integer, String> violationsByIndex;
+
+    public BatchValidationException(Map<Integer, String> violationsByIndex) {
+        super(violationsByIndex.size() + " object(s) in the batch did not meet their constraints: " + violationsByIndex);
+        this.violationsByIndex = violationsByIndex;
+    }
+
+    public Map<Integer, String> getViolationsByIndex() {
+        return violationsByIndex;
+    }
+}
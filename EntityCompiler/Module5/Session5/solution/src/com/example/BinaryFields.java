@@ -0,0 +1,139 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+// Reads and writes the fields of the generated codec classes that are not a single
+// ByteBuffer call. Strings are written as an int byte length (-1 for null) followed by
+// their UTF-8 bytes, encoded straight into the buffer so no byte array is created.
+// UUIDs are written as two longs, with null written as the nil UUID (all zero bits)
+// which is never created as a key. Dates are written as their milliseconds like ColumnIO
+// does (Long.MIN_VALUE for null) and enums as an int ordinal (-1 for null).
+public final class BinaryFields {
+    private static final int NULL_LENGTH = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int NULL_ORDINAL = -1;
+
+    private BinaryFields() {
+    }
+
+    // Returns the most bytes putString() can write for this value.
+    public static int maxStringSize(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.length() * 3);
+    }
+
+    // Returns the exact number of bytes putString() writes for this value.
+    public static int stringSize(String value) {
+        if (value == null) {
+            return Integer.BYTES;
+        }
+        int size = Integer.BYTES;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                size += 1;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        int start = buffer.position();
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    // same replacement String.getBytes() uses for a lone surrogate
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.putInt(lengthPosition, buffer.position() - start);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    public static void putUUID(ByteBuffer buffer, UUID value) {
+        if (value == null) {
+            buffer.putLong(0L);
+            buffer.putLong(0L);
+        } else {
+            buffer.putLong(value.getMostSignificantBits());
+            buffer.putLong(value.getLeastSignificantBits());
+        }
+    }
+
+    public static UUID getUUID(ByteBuffer buffer) {
+        long mostSigBits = buffer.getLong();
+        long leastSigBits = buffer.getLong();
+        return mostSigBits == 0L && leastSigBits == 0L ? null : new UUID(mostSigBits, leastSigBits);
+    }
+
+    public static void putDate(ByteBuffer buffer, Date value) {
+        buffer.putLong(value == null ? NULL_DATE : value.getTime());
+    }
+
+    public static Date getDate(ByteBuffer buffer) {
+        long time = buffer.getLong();
+        return time == NULL_DATE ? null : new Date(time);
+    }
+
+    public static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.putInt(value == null ? NULL_ORDINAL : value.ordinal());
+    }
+
+    // values is the enum's values(), which the codec keeps so each call doesn't copy it.
+    public static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        int ordinal = buffer.getInt();
+        return ordinal == NULL_ORDINAL ? null : values[ordinal];
+    }
+}
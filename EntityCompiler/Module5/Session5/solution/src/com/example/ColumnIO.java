@@ -0,0 +1,249 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
+
+// Reads and writes the columns of the generated store classes. There is one overload per
+// column type so the generated code calls the same method for every column. Primitive
+// columns are copied in bulk through a view of the buffer, the others value by value
+// (dates as their milliseconds, with Long.MIN_VALUE for null).
+public final class ColumnIO {
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private ColumnIO() {
+    }
+
+    // Bytes taken by the first size values of a column.
+
+    public static long size(boolean[] column, int size) {
+        return size;
+    }
+
+    public static long size(int[] column, int size) {
+        return (long) size * Integer.BYTES;
+    }
+
+    public static long size(long[] column, int size) {
+        return (long) size * Long.BYTES;
+    }
+
+    public static long size(float[] column, int size) {
+        return (long) size * Float.BYTES;
+    }
+
+    public static long size(double[] column, int size) {
+        return (long) size * Double.BYTES;
+    }
+
+    public static long size(Date[] column, int size) {
+        return (long) size * Long.BYTES;
+    }
+
+    public static long size(UUID[] column, int size) {
+        return (long) size * 2 * Long.BYTES;
+    }
+
+    public static long size(String[] column, int size) {
+        long bytes = 0;
+        for (int row = 0; row < size; row++) {
+            bytes += BinaryFields.stringSize(column[row]);
+        }
+        return bytes;
+    }
+
+    // Writes the first size values of a column.
+
+    public static void write(ByteBuffer buffer, boolean[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            buffer.put((byte) (column[row] ? 1 : 0));
+        }
+    }
+
+    public static void write(ByteBuffer buffer, int[] column, int size) {
+        buffer.asIntBuffer().put(column, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+    }
+
+    public static void write(ByteBuffer buffer, long[] column, int size) {
+        buffer.asLongBuffer().put(column, 0, size);
+        buffer.position(buffer.position() + size * Long.BYTES);
+    }
+
+    public static void write(ByteBuffer buffer, float[] column, int size) {
+        buffer.asFloatBuffer().put(column, 0, size);
+        buffer.position(buffer.position() + size * Float.BYTES);
+    }
+
+    public static void write(ByteBuffer buffer, double[] column, int size) {
+        buffer.asDoubleBuffer().put(column, 0, size);
+        buffer.position(buffer.position() + size * Double.BYTES);
+    }
+
+    public static void write(ByteBuffer buffer, Date[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            put(buffer, column, row);
+        }
+    }
+
+    public static void write(ByteBuffer buffer, UUID[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            BinaryFields.putUUID(buffer, column[row]);
+        }
+    }
+
+    public static void write(ByteBuffer buffer, String[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            BinaryFields.putString(buffer, column[row]);
+        }
+    }
+
+    // Reads the first size values of a column.
+
+    public static void read(ByteBuffer buffer, boolean[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            column[row] = buffer.get() != 0;
+        }
+    }
+
+    public static void read(ByteBuffer buffer, int[] column, int size) {
+        buffer.asIntBuffer().get(column, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+    }
+
+    public static void read(ByteBuffer buffer, long[] column, int size) {
+        buffer.asLongBuffer().get(column, 0, size);
+        buffer.position(buffer.position() + size * Long.BYTES);
+    }
+
+    public static void read(ByteBuffer buffer, float[] column, int size) {
+        buffer.asFloatBuffer().get(column, 0, size);
+        buffer.position(buffer.position() + size * Float.BYTES);
+    }
+
+    public static void read(ByteBuffer buffer, double[] column, int size) {
+        buffer.asDoubleBuffer().get(column, 0, size);
+        buffer.position(buffer.position() + size * Double.BYTES);
+    }
+
+    public static void read(ByteBuffer buffer, Date[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            get(buffer, column, row);
+        }
+    }
+
+    public static void read(ByteBuffer buffer, UUID[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            column[row] = BinaryFields.getUUID(buffer);
+        }
+    }
+
+    public static void read(ByteBuffer buffer, String[] column, int size) {
+        for (int row = 0; row < size; row++) {
+            column[row] = BinaryFields.getString(buffer);
+        }
+    }
+
+    // Bytes taken by the value of one row.
+
+    public static int rowSize(boolean[] column, int row) {
+        return 1;
+    }
+
+    public static int rowSize(int[] column, int row) {
+        return Integer.BYTES;
+    }
+
+    public static int rowSize(long[] column, int row) {
+        return Long.BYTES;
+    }
+
+    public static int rowSize(float[] column, int row) {
+        return Float.BYTES;
+    }
+
+    public static int rowSize(double[] column, int row) {
+        return Double.BYTES;
+    }
+
+    public static int rowSize(Date[] column, int row) {
+        return Long.BYTES;
+    }
+
+    public static int rowSize(UUID[] column, int row) {
+        return 2 * Long.BYTES;
+    }
+
+    public static int rowSize(String[] column, int row) {
+        return BinaryFields.stringSize(column[row]);
+    }
+
+    // Writes the value of one row.
+
+    public static void put(ByteBuffer buffer, boolean[] column, int row) {
+        buffer.put((byte) (column[row] ? 1 : 0));
+    }
+
+    public static void put(ByteBuffer buffer, int[] column, int row) {
+        buffer.putInt(column[row]);
+    }
+
+    public static void put(ByteBuffer buffer, long[] column, int row) {
+        buffer.putLong(column[row]);
+    }
+
+    public static void put(ByteBuffer buffer, float[] column, int row) {
+        buffer.putFloat(column[row]);
+    }
+
+    public static void put(ByteBuffer buffer, double[] column, int row) {
+        buffer.putDouble(column[row]);
+    }
+
+    public static void put(ByteBuffer buffer, Date[] column, int row) {
+        buffer.putLong(column[row] == null ? NULL_DATE : column[row].getTime());
+    }
+
+    public static void put(ByteBuffer buffer, UUID[] column, int row) {
+        BinaryFields.putUUID(buffer, column[row]);
+    }
+
+    public static void put(ByteBuffer buffer, String[] column, int row) {
+        BinaryFields.putString(buffer, column[row]);
+    }
+
+    // Reads the value of one row.
+
+    public static void get(ByteBuffer buffer, boolean[] column, int row) {
+        column[row] = buffer.get() != 0;
+    }
+
+    public static void get(ByteBuffer buffer, int[] column, int row) {
+        column[row] = buffer.getInt();
+    }
+
+    public static void get(ByteBuffer buffer, long[] column, int row) {
+        column[row] = buffer.getLong();
+    }
+
+    public static void get(ByteBuffer buffer, float[] column, int row) {
+        column[row] = buffer.getFloat();
+    }
+
+    public static void get(ByteBuffer buffer, double[] column, int row) {
+        column[row] = buffer.getDouble();
+    }
+
+    public static void get(ByteBuffer buffer, Date[] column, int row) {
+        long time = buffer.getLong();
+        column[row] = time == NULL_DATE ? null : new Date(time);
+    }
+
+    public static void get(ByteBuffer buffer, UUID[] column, int row) {
+        column[row] = BinaryFields.getUUID(buffer);
+    }
+
+    public static void get(ByteBuffer buffer, String[] column, int row) {
+        column[row] = BinaryFields.getString(buffer);
+    }
+}
@@ -3,15 +3,10 @@ package com.example;
 import com.example.model.ZMPlayer;
 import com.example.dto.ZDPlayerDto;
 import com.example.controller.ZAPlayerController;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import com.example.store.ZSPlayerStore;
 
 public class Main {
-    private Map<UUID, ZMPlayer> playerById = new HashMap<>();
+    private ZSPlayerStore players = new ZSPlayerStore();
 
     public static void main(String[] args) {
         Main main = new Main();
@@ -78,6 +73,6 @@ public class Main {
         if (player1.getLevel() != 3) {
             System.err.println("Level constraint not working!");
         }
-        playerById.put(player1.getId(), player1);
+        players.put(player1);
     }
 }
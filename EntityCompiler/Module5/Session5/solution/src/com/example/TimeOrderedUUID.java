@@ -0,0 +1,44 @@
+package com.example;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Creates version 7 style UUIDs: the top 48 bits are the Unix time in milliseconds so
+// keys created close together in time sort (and are inserted into indexes) close together.
+// The next 12 bits are a counter so keys created by the same thread within the same
+// millisecond still increase. The rest is random. Each thread keeps its own state and
+// uses ThreadLocalRandom so no lock is shared between threads. These are not meant to be
+// unguessable, only unique.
+public final class TimeOrderedUUID {
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_MAX = (1 << COUNTER_BITS) - 1;
+
+    private static final ThreadLocal<TimeOrderedUUID> generators = ThreadLocal.withInitial(TimeOrderedUUID::new);
+
+    private long lastMillis;
+    private int counter;
+
+    private TimeOrderedUUID() {
+    }
+
+    public static UUID next() {
+        return generators.get().generate();
+    }
+
+    private UUID generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long millis = System.currentTimeMillis();
+        if (millis > lastMillis) {
+            lastMillis = millis;
+            // start somewhere in the lower half so there is room left to count up
+            counter = random.nextInt(COUNTER_MAX >> 1);
+        } else if (++counter > COUNTER_MAX) {
+            // used up this millisecond (or the clock went back), borrow the next one
+            lastMillis++;
+            counter = random.nextInt(COUNTER_MAX >> 1);
+        }
+        long mostSigBits = (lastMillis << 16) | (0x7L << COUNTER_BITS) | counter;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example;
+
+import java.util.Arrays;
+
+// Maps a UUID (given as its two longs) to a row number. It uses open addressing with
+// linear probing over primitive arrays, so unlike a HashMap<UUID, Integer> there are no
+// entry, key or boxed value objects per row.
+public final class UUIDIndex {
+    private static final int EMPTY = -1;
+
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private int[] rows;
+    private int mask;
+    private int size;
+
+    public UUIDIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the row of the key or -1 if it is not in the index.
+    public int get(long msb, long lsb) {
+        for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+            int row = rows[slot];
+            if (row == EMPTY || (mostSigBits[slot] == msb && leastSigBits[slot] == lsb)) {
+                return row;
+            }
+        }
+    }
+
+    // Adds the key or moves it to a new row.
+    public void put(long msb, long lsb, int row) {
+        int slot = slot(msb, lsb);
+        while (rows[slot] != EMPTY) {
+            if (mostSigBits[slot] == msb && leastSigBits[slot] == lsb) {
+                rows[slot] = row;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mostSigBits[slot] = msb;
+        leastSigBits[slot] = lsb;
+        rows[slot] = row;
+        if (++size > (rows.length >> 1) + (rows.length >> 2)) {
+            rehash(rows.length << 1);
+        }
+    }
+
+    // Removes the key and returns the row it had or -1 if it was not in the index.
+    public int remove(long msb, long lsb) {
+        int slot = slot(msb, lsb);
+        while (rows[slot] != EMPTY) {
+            if (mostSigBits[slot] == msb && leastSigBits[slot] == lsb) {
+                int row = rows[slot];
+                size--;
+                closeGap(slot);
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    // Shifts back any following entries that would no longer be found once this slot is empty.
+    private void closeGap(int gap) {
+        for (int slot = (gap + 1) & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = slot(mostSigBits[slot], leastSigBits[slot]);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                mostSigBits[gap] = mostSigBits[slot];
+                leastSigBits[gap] = leastSigBits[slot];
+                rows[gap] = rows[slot];
+                gap = slot;
+            }
+        }
+        rows[gap] = EMPTY;
+    }
+
+    private int slot(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMostSigBits = mostSigBits;
+        long[] oldLeastSigBits = leastSigBits;
+        int[] oldRows = rows;
+        allocate(capacity);
+        size = 0;
+        for (int slot = 0; slot < oldRows.length; slot++) {
+            if (oldRows[slot] != EMPTY) {
+                put(oldMostSigBits[slot], oldLeastSigBits[slot], oldRows[slot]);
+            }
+        }
+    }
+}
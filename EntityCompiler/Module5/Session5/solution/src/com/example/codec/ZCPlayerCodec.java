@@ -0,0 +1,49 @@
+package com.example.codec;
+
+import java.nio.ByteBuffer;
+import com.example.BinaryFields;
+import com.example.dto.ZDPlayerDto;
+
+// Encodes ZDPlayerDto objects to and from a ByteBuffer without reflection or any
+// intermediate objects. Numbers are written at their fixed width, strings as their UTF-8
+// length followed by their bytes and UUIDs as two longs. The buffer's byte order is used.
+public final class ZCPlayerCodec
+{
+    // Bytes taken by the fields that do not depend on the object.
+    public static final int FIXED_SIZE = 44;
+
+    private ZCPlayerCodec() {
+    }
+
+    // Returns the most bytes encode() can write for this object.
+    public static int maxEncodedSize(ZDPlayerDto dtoObject) {
+        int size = FIXED_SIZE;
+        size += BinaryFields.maxStringSize(dtoObject.getFirstName());
+        size += BinaryFields.maxStringSize(dtoObject.getLastName());
+        return size;
+    }
+
+    public static void encode(ZDPlayerDto dtoObject, ByteBuffer buffer) {
+        BinaryFields.putUUID(buffer, dtoObject.getId());
+        BinaryFields.putString(buffer, dtoObject.getFirstName());
+        BinaryFields.putString(buffer, dtoObject.getLastName());
+        buffer.putLong(dtoObject.getExperiencePoints());
+        buffer.putInt(dtoObject.getLevel());
+        buffer.putInt(dtoObject.getHealth());
+        buffer.putInt(dtoObject.getMagicEnergy());
+        buffer.putLong(dtoObject.getCoins());
+    }
+
+    public static ZDPlayerDto decode(ByteBuffer buffer) {
+        ZDPlayerDto dtoObject = new ZDPlayerDto();
+        dtoObject.setId(BinaryFields.getUUID(buffer));
+        dtoObject.setFirstName(BinaryFields.getString(buffer));
+        dtoObject.setLastName(BinaryFields.getString(buffer));
+        dtoObject.setExperiencePoints(buffer.getLong());
+        dtoObject.setLevel(buffer.getInt());
+        dtoObject.setHealth(buffer.getInt());
+        dtoObject.setMagicEnergy(buffer.getInt());
+        dtoObject.setCoins(buffer.getLong());
+        return dtoObject;
+    }
+}
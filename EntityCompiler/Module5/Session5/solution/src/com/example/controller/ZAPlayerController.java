@@ -2,35 +2,89 @@ package com.example.controller;
 
 import java.util.UUID;
 import com.example.ValidationException;
+import com.example.BatchValidationException;
 import com.example.dto.ZDPlayerDto;
 import com.example.model.ZMPlayer;
+import com.example.TimeOrderedUUID;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 public class ZAPlayerController {
 
+    // Batches smaller than this are validated on the calling thread since splitting
+    // them across the fork/join pool costs more than it saves.
+    private static final int PARALLEL_BATCH_THRESHOLD = 256;
+
 
     // POST /api/player
     public ZDPlayerDto createPlayer(ZDPlayerDto dtoObject) throws ValidationException {
-        List<String> firstNameViolations = dtoObject.firstNameConstraintsViolated();
-        if (firstNameViolations.size() > 0) {
-            if (firstNameViolations.contains("correctLength")) {
+        validatePlayer(dtoObject);
+        ZMPlayer modelObject = ZMPlayer.fromDTO(dtoObject);
+        modelObject.setId(TimeOrderedUUID.next());
+        return ZDPlayerDto.fromModel(modelObject);
+    }
+
+    // POST /api/player/batch
+    // Validates every object (in parallel for large batches) before any are created, so
+    // either all are created or a BatchValidationException reports the violation of each
+    // invalid object by its index in the list.
+    public List<ZDPlayerDto> createPlayerBatch(List<ZDPlayerDto> dtoObjects) throws BatchValidationException {
+        int count = dtoObjects.size();
+        String[] violations = new String[count];
+        IntStream indexes = IntStream.range(0, count);
+        if (count >= PARALLEL_BATCH_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> {
+            try {
+                validatePlayer(dtoObjects.get(i));
+            } catch (ValidationException e) {
+                violations[i] = e.getMessage();
+            }
+        });
+        Map<Integer, String> violationsByIndex = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            if (violations[i] != null) {
+                violationsByIndex.put(i, violations[i]);
+            }
+        }
+        if (!violationsByIndex.isEmpty()) {
+            throw new BatchValidationException(violationsByIndex);
+        }
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = TimeOrderedUUID.next();
+        }
+        List<ZDPlayerDto> createdObjects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ZMPlayer modelObject = ZMPlayer.fromDTO(dtoObjects.get(i));
+            modelObject.setId(ids[i]);
+            createdObjects.add(ZDPlayerDto.fromModel(modelObject));
+        }
+        return createdObjects;
+    }
+
+    private static void validatePlayer(ZDPlayerDto dtoObject) throws ValidationException {
+        int firstNameViolations = dtoObject.firstNameConstraintsViolatedMask();
+        if (firstNameViolations != 0) {
+            if ((firstNameViolations & ZDPlayerDto.FIRSTNAME_CORRECTLENGTH) != 0) {
                 throw new ValidationException("The constraint was not met: length(firstName) >= 1 && length(firstName) <= 15");
             }
         }
-        List<String> lastNameViolations = dtoObject.lastNameConstraintsViolated();
-        if (lastNameViolations.size() > 0) {
-            if (lastNameViolations.contains("correctLength")) {
+        int lastNameViolations = dtoObject.lastNameConstraintsViolatedMask();
+        if (lastNameViolations != 0) {
+            if ((lastNameViolations & ZDPlayerDto.LASTNAME_CORRECTLENGTH) != 0) {
                 throw new ValidationException("The constraint was not met: length(lastName) >= 3 && length(lastName) <= 20");
             }
         }
-        List<String> levelViolations = dtoObject.levelConstraintsViolated();
-        if (levelViolations.size() > 0) {
-            if (levelViolations.contains("levelValue")) {
+        int levelViolations = dtoObject.levelConstraintsViolatedMask();
+        if (levelViolations != 0) {
+            if ((levelViolations & ZDPlayerDto.LEVEL_LEVELVALUE) != 0) {
                 throw new ValidationException("The constraint was not met: level <= 12");
             }
         }
-        ZMPlayer modelObject = ZMPlayer.fromDTO(dtoObject);
-        modelObject.setId(UUID.randomUUID());
-        return ZDPlayerDto.fromModel(modelObject);
     }
 }
@@ -114,6 +114,19 @@ public class ZDPlayerDto
         }
         return violations;
     }
+
+    // Bits set in the value returned by firstNameConstraintsViolatedMask()
+    public static final int FIRSTNAME_CORRECTLENGTH = 1 << 0;
+
+    // Same as firstNameConstraintsViolated() but returns one bit per violated constraint
+    // so no objects are created when the value is valid.
+    public int firstNameConstraintsViolatedMask() {
+        int violations = 0;
+        if (!(firstName.length() >= 1 && firstName.length() <= 15)) {
+            violations |= FIRSTNAME_CORRECTLENGTH;
+        }
+        return violations;
+    }
     public List<String> lastNameConstraintsViolated() {
         List<String> violations = new ArrayList<>();
         if (!(lastName.length() >= 3 && lastName.length() <= 20)) {
@@ -121,6 +134,19 @@ public class ZDPlayerDto
         }
         return violations;
     }
+
+    // Bits set in the value returned by lastNameConstraintsViolatedMask()
+    public static final int LASTNAME_CORRECTLENGTH = 1 << 0;
+
+    // Same as lastNameConstraintsViolated() but returns one bit per violated constraint
+    // so no objects are created when the value is valid.
+    public int lastNameConstraintsViolatedMask() {
+        int violations = 0;
+        if (!(lastName.length() >= 3 && lastName.length() <= 20)) {
+            violations |= LASTNAME_CORRECTLENGTH;
+        }
+        return violations;
+    }
     public List<String> levelConstraintsViolated() {
         List<String> violations = new ArrayList<>();
         if (!(level <= 12)) {
@@ -128,4 +154,17 @@ public class ZDPlayerDto
         }
         return violations;
     }
+
+    // Bits set in the value returned by levelConstraintsViolatedMask()
+    public static final int LEVEL_LEVELVALUE = 1 << 0;
+
+    // Same as levelConstraintsViolated() but returns one bit per violated constraint
+    // so no objects are created when the value is valid.
+    public int levelConstraintsViolatedMask() {
+        int violations = 0;
+        if (!(level <= 12)) {
+            violations |= LEVEL_LEVELVALUE;
+        }
+        return violations;
+    }
 }
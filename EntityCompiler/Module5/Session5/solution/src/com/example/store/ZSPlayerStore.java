@@ -0,0 +1,597 @@
+package com.example.store;
+
+import java.util.Arrays;
+import java.util.UUID;
+import com.example.UUIDIndex;
+import com.example.model.ZMPlayer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import com.example.ColumnIO;
+import java.util.function.LongPredicate;
+import java.util.function.IntPredicate;
+
+// A player in the game.
+// Stores Player objects column by column: each attribute is kept in its own array
+// so primitive attributes are stored as primitives and there is no object per row.
+public class ZSPlayerStore implements Closeable
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // The snapshot starts with its magic number, the number of columns and the number of
+    // rows, followed by each column in turn.
+    private static final int SNAPSHOT_MAGIC = 0x5A53534E;
+    private static final int SNAPSHOT_COLUMN_COUNT = 9;
+    private static final int SNAPSHOT_HEADER_SIZE = 3 * Integer.BYTES;
+
+    // Each log record starts with the length and CRC32 of the rest of the record, which
+    // is the kind of change, the primary key and, for a put, the value of every column.
+    private static final int LOG_RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte LOG_PUT = 1;
+    private static final byte LOG_REMOVE = 2;
+    private static final int LOG_BUFFER_SIZE = 4096;
+
+    private Path snapshotFile;
+    private FileChannel log;
+    private ByteBuffer logBuffer;
+    private CRC32 logChecksum;
+
+    private int size;
+    private final UUIDIndex idIndex;
+    private long[] idMostSigBits;
+    private long[] idLeastSigBits;
+
+    // First name of the player.
+    private String[] firstNameColumn;
+
+    // Last name of the player.
+    private String[] lastNameColumn;
+
+    // Experience Points
+    private long[] experiencePointsColumn;
+
+    // Level achieved.
+    private int[] levelColumn;
+
+    // Amount of health remaining.
+    private int[] healthColumn;
+
+    // Amount of energy remaining used to cast magic spells.
+    private int[] magicEnergyColumn;
+
+    // Number of coins the player has.
+    private long[] coinsColumn;
+
+    public ZSPlayerStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ZSPlayerStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        idIndex = new UUIDIndex(capacity);
+        idMostSigBits = new long[capacity];
+        idLeastSigBits = new long[capacity];
+        firstNameColumn = new String[capacity];
+        lastNameColumn = new String[capacity];
+        experiencePointsColumn = new long[capacity];
+        levelColumn = new int[capacity];
+        healthColumn = new int[capacity];
+        magicEnergyColumn = new int[capacity];
+        coinsColumn = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the row of the object with this primary key or -1 if it is not stored.
+    public int rowOf(UUID id) {
+        return idIndex.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    // Stores the object, replacing any stored object with the same primary key, and returns its row.
+    public int put(ZMPlayer modelObject) {
+        UUID id = modelObject.getId();
+        int row = rowFor(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        firstNameColumn[row] = modelObject.getFirstName();
+        lastNameColumn[row] = modelObject.getLastName();
+        experiencePointsColumn[row] = modelObject.getExperiencePoints();
+        levelColumn[row] = modelObject.getLevel();
+        healthColumn[row] = modelObject.getHealth();
+        magicEnergyColumn[row] = modelObject.getMagicEnergy();
+        coinsColumn[row] = modelObject.getCoins();
+        if (log != null) {
+            logPut(row);
+        }
+        return row;
+    }
+
+    // Returns the row of the primary key, adding a row for it if it is not stored yet.
+    private int rowFor(long msb, long lsb) {
+        int row = idIndex.get(msb, lsb);
+        if (row < 0) {
+            if (size == idMostSigBits.length) {
+                grow();
+            }
+            row = size++;
+            idMostSigBits[row] = msb;
+            idLeastSigBits[row] = lsb;
+            idIndex.put(msb, lsb, row);
+        }
+        return row;
+    }
+
+    // Removes the object by moving the last row into its place, so rows of other objects
+    // may change. Returns false if no object has this primary key.
+    public boolean remove(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        boolean removed = removeRow(msb, lsb);
+        if (removed && log != null) {
+            logRemove(msb, lsb);
+        }
+        return removed;
+    }
+
+    private boolean removeRow(long msb, long lsb) {
+        int row = idIndex.remove(msb, lsb);
+        if (row < 0) {
+            return false;
+        }
+        int last = --size;
+        if (row != last) {
+            idMostSigBits[row] = idMostSigBits[last];
+            idLeastSigBits[row] = idLeastSigBits[last];
+            firstNameColumn[row] = firstNameColumn[last];
+            lastNameColumn[row] = lastNameColumn[last];
+            experiencePointsColumn[row] = experiencePointsColumn[last];
+            levelColumn[row] = levelColumn[last];
+            healthColumn[row] = healthColumn[last];
+            magicEnergyColumn[row] = magicEnergyColumn[last];
+            coinsColumn[row] = coinsColumn[last];
+            idIndex.put(idMostSigBits[row], idLeastSigBits[row], row);
+        }
+        firstNameColumn[last] = null;
+        lastNameColumn[last] = null;
+        return true;
+    }
+
+    // Creates a model object from a row.
+    public ZMPlayer toModel(int row) {
+        ZMPlayer modelObject = new ZMPlayer();
+        modelObject.setId(new UUID(idMostSigBits[row], idLeastSigBits[row]));
+        modelObject.setFirstName(firstNameColumn[row]);
+        modelObject.setLastName(lastNameColumn[row]);
+        modelObject.setExperiencePoints(experiencePointsColumn[row]);
+        modelObject.setLevel(levelColumn[row]);
+        modelObject.setHealth(healthColumn[row]);
+        modelObject.setMagicEnergy(magicEnergyColumn[row]);
+        modelObject.setCoins(coinsColumn[row]);
+        return modelObject;
+    }
+
+    // Returns a view that can be moved from row to row without creating objects.
+    public View view() {
+        return new View();
+    }
+
+    // A flyweight over one row of the store.
+    public final class View {
+        private int row = -1;
+
+        public View at(int row) {
+            this.row = row;
+            return this;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public UUID getId() {
+            return new UUID(idMostSigBits[row], idLeastSigBits[row]);
+        }
+
+        public String getFirstName() {
+            return firstNameColumn[row];
+        }
+
+        public void setFirstName(String firstName) {
+            if (!(firstName.length() >= 1 && firstName.length() <= 15)) {
+                return;
+            }
+            firstNameColumn[row] = firstName;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public String getLastName() {
+            return lastNameColumn[row];
+        }
+
+        public void setLastName(String lastName) {
+            if (!(lastName.length() >= 3 && lastName.length() <= 20)) {
+                return;
+            }
+            lastNameColumn[row] = lastName;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public long getExperiencePoints() {
+            return experiencePointsColumn[row];
+        }
+
+        public void setExperiencePoints(long experiencePoints) {
+            experiencePointsColumn[row] = experiencePoints;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public int getLevel() {
+            return levelColumn[row];
+        }
+
+        public void setLevel(int level) {
+            if (!(level <= 12)) {
+                return;
+            }
+            levelColumn[row] = level;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public int getHealth() {
+            return healthColumn[row];
+        }
+
+        public void setHealth(int health) {
+            healthColumn[row] = health;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public int getMagicEnergy() {
+            return magicEnergyColumn[row];
+        }
+
+        public void setMagicEnergy(int magicEnergy) {
+            magicEnergyColumn[row] = magicEnergy;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+
+        public long getCoins() {
+            return coinsColumn[row];
+        }
+
+        public void setCoins(long coins) {
+            coinsColumn[row] = coins;
+            if (log != null) {
+                logPut(row);
+            }
+        }
+    }
+
+    public long sumExperiencePoints() {
+        long total = 0;
+        long[] column = experiencePointsColumn;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    // Returns the rows whose experiencePoints matches the predicate.
+    public int[] rowsWhereExperiencePoints(LongPredicate predicate) {
+        int[] rows = new int[size];
+        int count = 0;
+        long[] column = experiencePointsColumn;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(column[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    public long sumLevel() {
+        long total = 0;
+        int[] column = levelColumn;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    // Returns the rows whose level matches the predicate.
+    public int[] rowsWhereLevel(IntPredicate predicate) {
+        int[] rows = new int[size];
+        int count = 0;
+        int[] column = levelColumn;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(column[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    public long sumHealth() {
+        long total = 0;
+        int[] column = healthColumn;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    // Returns the rows whose health matches the predicate.
+    public int[] rowsWhereHealth(IntPredicate predicate) {
+        int[] rows = new int[size];
+        int count = 0;
+        int[] column = healthColumn;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(column[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    public long sumMagicEnergy() {
+        long total = 0;
+        int[] column = magicEnergyColumn;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    // Returns the rows whose magicEnergy matches the predicate.
+    public int[] rowsWhereMagicEnergy(IntPredicate predicate) {
+        int[] rows = new int[size];
+        int count = 0;
+        int[] column = magicEnergyColumn;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(column[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    public long sumCoins() {
+        long total = 0;
+        long[] column = coinsColumn;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    // Returns the rows whose coins matches the predicate.
+    public int[] rowsWhereCoins(LongPredicate predicate) {
+        int[] rows = new int[size];
+        int count = 0;
+        long[] column = coinsColumn;
+        for (int row = 0; row < size; row++) {
+            if (predicate.test(column[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    // Opens a store kept in a snapshot file and a log file. The snapshot is mapped and its
+    // columns copied in bulk, then the changes in the log are applied. From then on every
+    // change is appended to the log until checkpoint() writes a new snapshot.
+    public static ZSPlayerStore open(Path snapshotFile, Path logFile) throws IOException {
+        ZSPlayerStore store = Files.exists(snapshotFile) ? readSnapshot(snapshotFile) : new ZSPlayerStore();
+        long logLength = Files.exists(logFile) ? store.replayLog(logFile) : 0L;
+        store.snapshotFile = snapshotFile;
+        store.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // drops a record that was cut short, so new records follow the last complete one
+        store.log.truncate(logLength);
+        store.log.position(logLength);
+        store.logBuffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE);
+        store.logChecksum = new CRC32();
+        return store;
+    }
+
+    // Writes a new snapshot and empties the log. If this is interrupted between the two,
+    // the log is applied again on open() which gives the same result.
+    public void checkpoint() throws IOException {
+        writeSnapshot(snapshotFile);
+        log.truncate(0L);
+        log.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    // Writes every row to a new file that then replaces the snapshot file, so a crash
+    // while writing leaves the old snapshot in place.
+    public void writeSnapshot(Path file) throws IOException {
+        long length = SNAPSHOT_HEADER_SIZE;
+        length += ColumnIO.size(idMostSigBits, size);
+        length += ColumnIO.size(idLeastSigBits, size);
+        length += ColumnIO.size(firstNameColumn, size);
+        length += ColumnIO.size(lastNameColumn, size);
+        length += ColumnIO.size(experiencePointsColumn, size);
+        length += ColumnIO.size(levelColumn, size);
+        length += ColumnIO.size(healthColumn, size);
+        length += ColumnIO.size(magicEnergyColumn, size);
+        length += ColumnIO.size(coinsColumn, size);
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_COLUMN_COUNT).putInt(size);
+            ColumnIO.write(buffer, idMostSigBits, size);
+            ColumnIO.write(buffer, idLeastSigBits, size);
+            ColumnIO.write(buffer, firstNameColumn, size);
+            ColumnIO.write(buffer, lastNameColumn, size);
+            ColumnIO.write(buffer, experiencePointsColumn, size);
+            ColumnIO.write(buffer, levelColumn, size);
+            ColumnIO.write(buffer, healthColumn, size);
+            ColumnIO.write(buffer, magicEnergyColumn, size);
+            ColumnIO.write(buffer, coinsColumn, size);
+            buffer.force();
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ZSPlayerStore readSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_COLUMN_COUNT) {
+                throw new IOException("Not a snapshot of this store: " + file);
+            }
+            int size = buffer.getInt();
+            ZSPlayerStore store = new ZSPlayerStore(size);
+            ColumnIO.read(buffer, store.idMostSigBits, size);
+            ColumnIO.read(buffer, store.idLeastSigBits, size);
+            ColumnIO.read(buffer, store.firstNameColumn, size);
+            ColumnIO.read(buffer, store.lastNameColumn, size);
+            ColumnIO.read(buffer, store.experiencePointsColumn, size);
+            ColumnIO.read(buffer, store.levelColumn, size);
+            ColumnIO.read(buffer, store.healthColumn, size);
+            ColumnIO.read(buffer, store.magicEnergyColumn, size);
+            ColumnIO.read(buffer, store.coinsColumn, size);
+            for (int row = 0; row < size; row++) {
+                store.idIndex.put(store.idMostSigBits[row], store.idLeastSigBits[row], row);
+            }
+            store.size = size;
+            return store;
+        }
+    }
+
+    // Applies the complete records of the log and returns the length they take. A record
+    // that was cut short or does not match its checksum ends the log.
+    private long replayLog(Path logFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 checksum = new CRC32();
+            int end = 0;
+            while (buffer.remaining() >= LOG_RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int expectedChecksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                int start = buffer.position();
+                checksum.reset();
+                buffer.limit(start + length);
+                checksum.update(buffer);
+                buffer.limit(buffer.capacity()).position(start);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    break;
+                }
+                byte change = buffer.get();
+                long msb = buffer.getLong();
+                long lsb = buffer.getLong();
+                if (change == LOG_PUT) {
+                    int row = rowFor(msb, lsb);
+                    ColumnIO.get(buffer, firstNameColumn, row);
+                    ColumnIO.get(buffer, lastNameColumn, row);
+                    ColumnIO.get(buffer, experiencePointsColumn, row);
+                    ColumnIO.get(buffer, levelColumn, row);
+                    ColumnIO.get(buffer, healthColumn, row);
+                    ColumnIO.get(buffer, magicEnergyColumn, row);
+                    ColumnIO.get(buffer, coinsColumn, row);
+                } else {
+                    removeRow(msb, lsb);
+                }
+                end = start + length;
+                buffer.position(end);
+            }
+            return end;
+        }
+    }
+
+    private void logPut(int row) {
+        int length = 1 + 2 * Long.BYTES;
+        length += ColumnIO.rowSize(firstNameColumn, row);
+        length += ColumnIO.rowSize(lastNameColumn, row);
+        length += ColumnIO.rowSize(experiencePointsColumn, row);
+        length += ColumnIO.rowSize(levelColumn, row);
+        length += ColumnIO.rowSize(healthColumn, row);
+        length += ColumnIO.rowSize(magicEnergyColumn, row);
+        length += ColumnIO.rowSize(coinsColumn, row);
+        ByteBuffer buffer = startLogRecord(length);
+        buffer.put(LOG_PUT).putLong(idMostSigBits[row]).putLong(idLeastSigBits[row]);
+        ColumnIO.put(buffer, firstNameColumn, row);
+        ColumnIO.put(buffer, lastNameColumn, row);
+        ColumnIO.put(buffer, experiencePointsColumn, row);
+        ColumnIO.put(buffer, levelColumn, row);
+        ColumnIO.put(buffer, healthColumn, row);
+        ColumnIO.put(buffer, magicEnergyColumn, row);
+        ColumnIO.put(buffer, coinsColumn, row);
+        appendLogRecord(buffer);
+    }
+
+    private void logRemove(long msb, long lsb) {
+        ByteBuffer buffer = startLogRecord(1 + 2 * Long.BYTES);
+        buffer.put(LOG_REMOVE).putLong(msb).putLong(lsb);
+        appendLogRecord(buffer);
+    }
+
+    private ByteBuffer startLogRecord(int length) {
+        if (logBuffer.capacity() < LOG_RECORD_HEADER_SIZE + length) {
+            logBuffer = ByteBuffer.allocateDirect(Math.max(LOG_RECORD_HEADER_SIZE + length, logBuffer.capacity() * 2));
+        }
+        logBuffer.clear().position(LOG_RECORD_HEADER_SIZE);
+        return logBuffer;
+    }
+
+    // Fills in the record header and writes the record to the log. The record reaches the
+    // operating system before the change returns but is only forced to disk by checkpoint().
+    private void appendLogRecord(ByteBuffer buffer) {
+        buffer.flip().position(LOG_RECORD_HEADER_SIZE);
+        logChecksum.reset();
+        logChecksum.update(buffer);
+        buffer.putInt(0, buffer.limit() - LOG_RECORD_HEADER_SIZE);
+        buffer.putInt(Integer.BYTES, (int) logChecksum.getValue());
+        buffer.position(0);
+        try {
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void grow() {
+        int capacity = idMostSigBits.length * 2;
+        idMostSigBits = Arrays.copyOf(idMostSigBits, capacity);
+        idLeastSigBits = Arrays.copyOf(idLeastSigBits, capacity);
+        firstNameColumn = Arrays.copyOf(firstNameColumn, capacity);
+        lastNameColumn = Arrays.copyOf(lastNameColumn, capacity);
+        experiencePointsColumn = Arrays.copyOf(experiencePointsColumn, capacity);
+        levelColumn = Arrays.copyOf(levelColumn, capacity);
+        healthColumn = Arrays.copyOf(healthColumn, capacity);
+        magicEnergyColumn = Arrays.copyOf(magicEnergyColumn, capacity);
+        coinsColumn = Arrays.copyOf(coinsColumn, capacity);
+    }
+}
@@ -1 +1,3 @@
-ec build Tutorial ec/Space.edl ec/Configuration.edl ec/Units.edl -tp ec
+ec build Tutorial ec/Space.edl ec/Configuration.edl ec/Units.edl ec/Domains.edl -tp ec
+rm -rf classes ; mkdir classes
+javac  -d classes src/com/example/model/*.java
@@ -0,0 +1,86 @@
+package com.example.model;
+
+// Reads and writes the bit fields of packed HighColor16 values. The array versions only
+// shift and mask each element in a plain counted loop, which the JIT can compile to vector
+// instructions.
+public final class HighColor16
+{
+    public static final int RED_SHIFT = 0;
+    public static final int RED_MASK = (1 << 5) - 1;
+    public static final int GREEN_SHIFT = 5;
+    public static final int GREEN_MASK = (1 << 6) - 1;
+    public static final int BLUE_SHIFT = 11;
+    public static final int BLUE_MASK = (1 << 5) - 1;
+
+    private HighColor16() {
+    }
+
+    public static int red(int packed) {
+        return (packed >>> RED_SHIFT) & RED_MASK;
+    }
+
+    public static int withRed(int packed, int red) {
+        return (packed & ~(RED_MASK << RED_SHIFT)) | ((red & RED_MASK) << RED_SHIFT);
+    }
+
+    // Writes the red field of the first count packed values to redValues.
+    public static void unpackRed(int[] packed, int[] redValues, int count) {
+        for (int i = 0; i < count; i++) {
+            redValues[i] = (packed[i] >>> RED_SHIFT) & RED_MASK;
+        }
+    }
+
+    // Replaces the red field of the first count packed values with redValues.
+    public static void packRed(int[] redValues, int[] packed, int count) {
+        int keep = ~(RED_MASK << RED_SHIFT);
+        for (int i = 0; i < count; i++) {
+            packed[i] = (packed[i] & keep) | ((redValues[i] & RED_MASK) << RED_SHIFT);
+        }
+    }
+
+    public static int green(int packed) {
+        return (packed >>> GREEN_SHIFT) & GREEN_MASK;
+    }
+
+    public static int withGreen(int packed, int green) {
+        return (packed & ~(GREEN_MASK << GREEN_SHIFT)) | ((green & GREEN_MASK) << GREEN_SHIFT);
+    }
+
+    // Writes the green field of the first count packed values to greenValues.
+    public static void unpackGreen(int[] packed, int[] greenValues, int count) {
+        for (int i = 0; i < count; i++) {
+            greenValues[i] = (packed[i] >>> GREEN_SHIFT) & GREEN_MASK;
+        }
+    }
+
+    // Replaces the green field of the first count packed values with greenValues.
+    public static void packGreen(int[] greenValues, int[] packed, int count) {
+        int keep = ~(GREEN_MASK << GREEN_SHIFT);
+        for (int i = 0; i < count; i++) {
+            packed[i] = (packed[i] & keep) | ((greenValues[i] & GREEN_MASK) << GREEN_SHIFT);
+        }
+    }
+
+    public static int blue(int packed) {
+        return (packed >>> BLUE_SHIFT) & BLUE_MASK;
+    }
+
+    public static int withBlue(int packed, int blue) {
+        return (packed & ~(BLUE_MASK << BLUE_SHIFT)) | ((blue & BLUE_MASK) << BLUE_SHIFT);
+    }
+
+    // Writes the blue field of the first count packed values to blueValues.
+    public static void unpackBlue(int[] packed, int[] blueValues, int count) {
+        for (int i = 0; i < count; i++) {
+            blueValues[i] = (packed[i] >>> BLUE_SHIFT) & BLUE_MASK;
+        }
+    }
+
+    // Replaces the blue field of the first count packed values with blueValues.
+    public static void packBlue(int[] blueValues, int[] packed, int count) {
+        int keep = ~(BLUE_MASK << BLUE_SHIFT);
+        for (int i = 0; i < count; i++) {
+            packed[i] = (packed[i] & keep) | ((blueValues[i] & BLUE_MASK) << BLUE_SHIFT);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.model;
+
+import java.util.UUID;
+
+// A player in the game.
+public class ZMPlayer
+{
+    private UUID id;
+
+    // Name of the player.
+    private String name;
+
+    private int primaryColor;
+
+    private int secondaryColor;
+
+    // Experience Points
+    private long experiencePoints;
+
+    // Level achieved.
+    private int level;
+
+    // Amount of health remaining.
+    private int health;
+
+    // Number of coins the player has.
+    private long coins;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID value) {
+        this.id = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String value) {
+        this.name = value;
+    }
+
+    public int getPrimaryColor() {
+        return primaryColor;
+    }
+
+    public void setPrimaryColor(int value) {
+        this.primaryColor = value;
+    }
+
+    public int getPrimaryColorRed() {
+        return HighColor16.red(primaryColor);
+    }
+
+    public void setPrimaryColorRed(int red) {
+        this.primaryColor = HighColor16.withRed(primaryColor, red);
+    }
+
+    public int getPrimaryColorGreen() {
+        return HighColor16.green(primaryColor);
+    }
+
+    public void setPrimaryColorGreen(int green) {
+        this.primaryColor = HighColor16.withGreen(primaryColor, green);
+    }
+
+    public int getPrimaryColorBlue() {
+        return HighColor16.blue(primaryColor);
+    }
+
+    public void setPrimaryColorBlue(int blue) {
+        this.primaryColor = HighColor16.withBlue(primaryColor, blue);
+    }
+
+    public int getSecondaryColor() {
+        return secondaryColor;
+    }
+
+    public void setSecondaryColor(int value) {
+        this.secondaryColor = value;
+    }
+
+    public int getSecondaryColorRed() {
+        return HighColor16.red(secondaryColor);
+    }
+
+    public void setSecondaryColorRed(int red) {
+        this.secondaryColor = HighColor16.withRed(secondaryColor, red);
+    }
+
+    public int getSecondaryColorGreen() {
+        return HighColor16.green(secondaryColor);
+    }
+
+    public void setSecondaryColorGreen(int green) {
+        this.secondaryColor = HighColor16.withGreen(secondaryColor, green);
+    }
+
+    public int getSecondaryColorBlue() {
+        return HighColor16.blue(secondaryColor);
+    }
+
+    public void setSecondaryColorBlue(int blue) {
+        this.secondaryColor = HighColor16.withBlue(secondaryColor, blue);
+    }
+
+    public long getExperiencePoints() {
+        return experiencePoints;
+    }
+
+    public void setExperiencePoints(long value) {
+        this.experiencePoints = value;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int value) {
+        this.level = value;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    public void setHealth(int value) {
+        this.health = value;
+    }
+
+    public long getCoins() {
+        return coins;
+    }
+
+    public void setCoins(long value) {
+        this.coins = value;
+    }
+}
@@ -1 +1 @@
-ec build Tutorial ec/Space.edl ec/Configuration.edl
+ec-parallel Tutorial TutorialLocal -- ec/Space.edl ec/Configuration.edl -tp ec/templates
@@ -0,0 +1,72 @@
+package org.entityc.tutorial.migration;
+
+/**
+ * Fills in the data of columns added in a schema version. Declare one as a bean and
+ * {@link OnlineBackfills} runs it after the schema change has been applied, a chunk of rows at a
+ * time, by running
+ * <pre>
+ * update &lt;table&gt; set &lt;assignments&gt; where &lt;keyColumn&gt; = any(&lt;chunk&gt;) and (&lt;pendingCondition&gt;)
+ * </pre>
+ * The pending condition must be false for a row once it has been filled in, whether by the
+ * backfill or by the application writing the row, so running a chunk twice does nothing. Once
+ * every key has been visited the table is swept for rows where it is still true, so it should be
+ * cheap to test, ideally through a partial index.
+ */
+public final class Backfill {
+    private final String name;
+    private final int schemaVersion;
+    private final String table;
+    private final String keyColumn;
+    private final String assignments;
+    private final String pendingCondition;
+
+    private Backfill(String name, int schemaVersion, String table, String keyColumn, String assignments, String pendingCondition) {
+        this.name = name;
+        this.schemaVersion = schemaVersion;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.assignments = assignments;
+        this.pendingCondition = pendingCondition;
+    }
+
+    /**
+     * @param name             identifies the backfill's progress, so it must never change
+     * @param schemaVersion    the {@code sinceSchemaVersion} of the columns it fills in
+     * @param table            the table to update
+     * @param keyColumn        its UUID primary key, which the rows are taken in the order of
+     * @param assignments      the {@code set} clause, such as {@code "title_text = upper(title)"}
+     * @param pendingCondition true for rows still to be filled in, such as {@code "title_text is null"}
+     */
+    public static Backfill of(String name, int schemaVersion, String table, String keyColumn, String assignments, String pendingCondition) {
+        return new Backfill(name, schemaVersion, table, keyColumn, assignments, pendingCondition);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    String selectChunkSql() {
+        return "select " + keyColumn + " from " + table + " where " + keyColumn + " > ? order by " + keyColumn + " limit ?";
+    }
+
+    String selectFirstChunkSql() {
+        return "select " + keyColumn + " from " + table + " order by " + keyColumn + " limit ?";
+    }
+
+    String selectPendingChunkSql() {
+        return "select " + keyColumn + " from " + table + " where " + keyColumn + " > ? and (" + pendingCondition + ")"
+                + " order by " + keyColumn + " limit ?";
+    }
+
+    String selectFirstPendingChunkSql() {
+        return "select " + keyColumn + " from " + table + " where (" + pendingCondition + ") order by " + keyColumn + " limit ?";
+    }
+
+    String updateChunkSql() {
+        return "update " + table + " set " + assignments + " where " + keyColumn + " = any(?) and (" + pendingCondition + ")";
+    }
+}
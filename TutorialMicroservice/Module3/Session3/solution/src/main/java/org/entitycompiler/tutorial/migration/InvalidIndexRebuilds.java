@@ -0,0 +1,172 @@
+package org.entityc.tutorial.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Looks after the indexes of {@code R__relationship_indexes.sql}, whose names all start with
+ * {@code ec_idx_} so no other index is ever touched. Once the application is ready, on a
+ * background thread:
+ * <ul>
+ * <li>each one that is no longer in the file, since its columns changed for example, is dropped;
+ * <li>each one that a failed or cancelled {@code create index concurrently} left invalid is
+ * dropped and built again from its own definition. Postgres keeps such an index up to date on
+ * every write but never uses it, and the migration's {@code if not exists} skips it from then on.
+ * </ul>
+ * Both are done concurrently so the table stays writable. Indexes that are still being built, by
+ * another instance's migration for example, are left alone.
+ */
+@Component
+public class InvalidIndexRebuilds {
+    private static final String INDEX_PREFIX = "ec_idx_";
+    private static final String INDEXES_RESOURCE = "db/migration/R__relationship_indexes.sql";
+    private static final Pattern CREATE_INDEX = Pattern.compile("create index concurrently if not exists (" + INDEX_PREFIX + "\\w+) on ");
+    // Postgres truncates longer names, in the statements of the file as well as in the catalog
+    private static final int MAX_NAME_LENGTH = 63;
+
+    private static final String INDEXES_SQL = "select c.relname, i.indisvalid, pg_get_indexdef(i.indexrelid)"
+            + " from pg_index i join pg_class c on c.oid = i.indexrelid join pg_namespace n on n.oid = c.relnamespace"
+            + " where n.nspname = current_schema() and c.relname like '" + INDEX_PREFIX.replace("_", "\\_") + "%'"
+            + " and not exists (select 1 from pg_stat_progress_create_index p where p.index_relid = i.indexrelid)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rebuiltCount = new AtomicLong();
+    private final AtomicLong failedRebuildCount = new AtomicLong();
+
+    private ExecutorService rebuilder;
+
+    @PostConstruct
+    private void start() {
+        rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void stop() {
+        // an interrupted build leaves the index invalid again, to be rebuilt at the next start
+        rebuilder.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void applicationReady() {
+        rebuilder.execute(this::rebuildAll);
+    }
+
+    private void rebuildAll() {
+        Set<String> generatedNames = generatedNames();
+        List<String> superseded = new ArrayList<>();
+        Map<String, String> invalidDefinitions = new LinkedHashMap<>();
+        // autocommit, since none of the statements can run in a transaction
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(INDEXES_SQL);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString(1);
+                    if (generatedNames != null && !generatedNames.contains(name)) {
+                        superseded.add(name);
+                    } else if (!resultSet.getBoolean(2)) {
+                        invalidDefinitions.put(name, resultSet.getString(3));
+                    }
+                }
+            }
+            for (String name : superseded) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("drop index concurrently if exists \"" + name + "\"");
+                    droppedCount.incrementAndGet();
+                } catch (SQLException e) {
+                    // tried again at the next start
+                    failedRebuildCount.incrementAndGet();
+                }
+            }
+            for (Map.Entry<String, String> definition : invalidDefinitions.entrySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("drop index concurrently if exists \"" + definition.getKey() + "\"");
+                    // pg_get_indexdef gives "CREATE [UNIQUE] INDEX name ON ..."
+                    statement.execute(definition.getValue().replaceFirst(" INDEX ", " INDEX CONCURRENTLY "));
+                    rebuiltCount.incrementAndGet();
+                } catch (SQLException e) {
+                    // left invalid and tried again at the next start
+                    failedRebuildCount.incrementAndGet();
+                }
+            }
+        } catch (SQLException e) {
+            failedRebuildCount.incrementAndGet();
+        }
+    }
+
+    // The names of the indexes the migration creates, or null if they cannot be read, in which
+    // case none is dropped as superseded.
+    private Set<String> generatedNames() {
+        InputStream resource = getClass().getClassLoader().getResourceAsStream(INDEXES_RESOURCE);
+        if (resource == null) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                Matcher matcher = CREATE_INDEX.matcher(line);
+                if (matcher.find()) {
+                    String name = matcher.group(1);
+                    names.add(name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return names.isEmpty() ? null : names;
+    }
+
+    /**
+     * The number of indexes dropped because the migration no longer creates them.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRebuiltCount() {
+        return rebuiltCount.get();
+    }
+
+    public long getFailedRebuildCount() {
+        return failedRebuildCount.get();
+    }
+}
@@ -0,0 +1,413 @@
+package org.entityc.tutorial.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link Backfill}s of schema versions online. Flyway applies the schema change at
+ * startup, which should only add columns and so never holds a lock for long; the data of the new
+ * columns is then filled in here on a background thread once the application is ready. Each chunk
+ * of {@code tutorial.migration.chunkRows} rows is updated in its own short transaction, with a
+ * pause of {@code tutorial.migration.pauseMillis} between chunks. A chunk gives up waiting for a
+ * row lock after {@code tutorial.migration.lockTimeoutMillis} and is tried again later, so it
+ * never holds up the application's own writes for long.
+ * <p>
+ * A backfill first visits every row in key order. The last key of every chunk is saved in the
+ * {@code schema_backfill} table in the chunk's transaction, so a backfill interrupted by a restart
+ * carries on where it stopped. Keys are not in insertion order, so an instance still running the
+ * previous version during a rolling deploy can insert rows behind the last key. The table is
+ * therefore swept for rows that are still pending until a whole pass finds none, and only then is
+ * the backfill marked completed.
+ * <p>
+ * Only one instance runs the backfills at a time: it holds a Postgres advisory lock while it does,
+ * on a connection of its own from {@code spring.datasource.url} rather than from the pool, so the
+ * hours a backfill can take never cost the application a pooled connection. Every instance reloads the progress from {@code schema_backfill} every
+ * {@code tutorial.migration.refreshSeconds} until every backfill has completed, so the others
+ * learn of the completion without a restart and take over if the running instance stops.
+ */
+@Component
+public class OnlineBackfills {
+    private static final String LOAD_PROGRESS_SQL = "select name, completed_on from schema_backfill";
+    private static final String LAST_KEY_SQL = "select last_key from schema_backfill where name = ?";
+    private static final String SAVE_PROGRESS_SQL = "insert into schema_backfill (name, schema_version, last_key, rows_updated, completed_on)"
+            + " values (?, ?, ?, ?, null) on conflict (name) do update set last_key = excluded.last_key,"
+            + " rows_updated = schema_backfill.rows_updated + excluded.rows_updated";
+    private static final String SAVE_SWEEP_PROGRESS_SQL = "update schema_backfill set rows_updated = rows_updated + ?,"
+            + " completed_on = ? where name = ?";
+    private static final String TRY_LOCK_SQL = "select pg_try_advisory_lock(hashtext('schema_backfill'))";
+
+    // lock_not_available, query_canceled, serialization_failure and deadlock_detected
+    private static final Set<String> RETRY_SQL_STATES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("55P03", "57014", "40001", "40P01")));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Autowired(required = false)
+    private List<Backfill> backfills = Collections.emptyList();
+
+    @Value("${tutorial.migration.chunkRows:1000}")
+    private int chunkRows;
+
+    @Value("${tutorial.migration.pauseMillis:100}")
+    private long pauseMillis;
+
+    @Value("${tutorial.migration.lockTimeoutMillis:2000}")
+    private long lockTimeoutMillis;
+
+    @Value("${tutorial.migration.maxRetries:10}")
+    private int maxRetries;
+
+    @Value("${tutorial.migration.refreshSeconds:30}")
+    private long refreshSeconds;
+
+    @Value("${tutorial.migration.maxSweepPasses:5}")
+    private int maxSweepPasses;
+
+    // names of the backfills that have filled in every row
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong chunkCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failedBackfillCount = new AtomicLong();
+
+    private ScheduledExecutorService runner;
+
+    // Where a sweep for pending rows has got to and how many it has found in the current pass.
+    private static final class Sweep {
+        private UUID lastKey;
+        private long pendingFound;
+        private int passes;
+    }
+
+    @PostConstruct
+    private void start() {
+        runner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "schema-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void stop() {
+        // a chunk that is interrupted is rolled back and run again after the restart
+        runner.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void applicationReady() {
+        runner.execute(this::runAll);
+    }
+
+    /**
+     * Whether the backfill has filled in every row, so reads can use its columns instead of the
+     * columns they replace.
+     */
+    public boolean isCompleted(String name) {
+        return completed.contains(name);
+    }
+
+    // Runs the pending backfills if no other instance is, and checks again later while any are
+    // still pending.
+    private void runAll() {
+        try {
+            loadProgress();
+            if (!getPendingBackfills().isEmpty()) {
+                runWithLock();
+            }
+        } catch (SQLException e) {
+            // left incomplete and carried on from its last chunk on the next try
+            failedBackfillCount.incrementAndGet();
+        }
+        if (!getPendingBackfills().isEmpty() && !Thread.currentThread().isInterrupted()) {
+            runner.schedule(this::runAll, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private void loadProgress() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(LOAD_PROGRESS_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                if (resultSet.getTimestamp("completed_on") != null) {
+                    completed.add(resultSet.getString("name"));
+                }
+            }
+        }
+    }
+
+    // The lock is held by the session of a connection kept open while the backfills run, and is
+    // released when it is closed. The chunks take pooled connections only while they run.
+    private void runWithLock() throws SQLException {
+        try (Connection lockConnection = DriverManager.getConnection(url, username, password)) {
+            if (!queryBoolean(lockConnection, TRY_LOCK_SQL)) {
+                return;
+            }
+            // another instance may have completed some while this one waited for the lock
+            loadProgress();
+            runPending();
+        }
+    }
+
+    private void runPending() {
+        List<Backfill> pending = new ArrayList<>(backfills);
+        pending.sort(Comparator.comparingInt(Backfill::getSchemaVersion).thenComparing(Backfill::getName));
+        for (Backfill backfill : pending) {
+            if (completed.contains(backfill.getName())) {
+                continue;
+            }
+            try {
+                if (!run(backfill)) {
+                    return;
+                }
+            } catch (SQLException e) {
+                failedBackfillCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+
+    // Returns false if interrupted before the backfill completed.
+    private boolean run(Backfill backfill) throws SQLException {
+        Sweep sweep = null;
+        int retries = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            boolean done = false;
+            try {
+                if (sweep == null) {
+                    if (runChunk(backfill)) {
+                        sweep = new Sweep();
+                    }
+                } else {
+                    done = runSweepChunk(backfill, sweep);
+                }
+                retries = 0;
+            } catch (SQLException e) {
+                if (!RETRY_SQL_STATES.contains(e.getSQLState()) || ++retries > maxRetries) {
+                    throw e;
+                }
+                retryCount.incrementAndGet();
+            }
+            if (done) {
+                completed.add(backfill.getName());
+                return true;
+            }
+            try {
+                // backs off further after every failed try of the same chunk
+                Thread.sleep(pauseMillis << Math.min(retries, 6));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return false;
+    }
+
+    // Updates the next chunk in key order in one transaction and returns whether every key has
+    // been visited.
+    private boolean runChunk(Backfill backfill) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                setLockTimeout(connection);
+                UUID lastKey = lastKey(connection, backfill);
+                List<UUID> keys = selectChunk(connection,
+                        lastKey != null ? backfill.selectChunkSql() : backfill.selectFirstChunkSql(), lastKey);
+                int updated = updateChunk(connection, backfill, keys);
+                if (!keys.isEmpty()) {
+                    lastKey = keys.get(keys.size() - 1);
+                }
+                saveProgress(connection, backfill, lastKey, updated);
+                connection.commit();
+                rowsUpdated.addAndGet(updated);
+                chunkCount.incrementAndGet();
+                return keys.size() < chunkRows;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // Updates the next chunk of rows that are still pending in one transaction and returns
+    // whether a whole pass over the table found none, in which case the backfill is saved as
+    // completed in the same transaction.
+    private boolean runSweepChunk(Backfill backfill, Sweep sweep) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                setLockTimeout(connection);
+                List<UUID> keys = selectChunk(connection, sweep.lastKey != null
+                        ? backfill.selectPendingChunkSql() : backfill.selectFirstPendingChunkSql(), sweep.lastKey);
+                int updated = updateChunk(connection, backfill, keys);
+                boolean passEnded = keys.size() < chunkRows;
+                boolean done = passEnded && sweep.pendingFound + keys.size() == 0;
+                try (PreparedStatement statement = connection.prepareStatement(SAVE_SWEEP_PROGRESS_SQL)) {
+                    statement.setLong(1, updated);
+                    statement.setTimestamp(2, done ? new Timestamp(System.currentTimeMillis()) : null);
+                    statement.setString(3, backfill.getName());
+                    statement.executeUpdate();
+                }
+                connection.commit();
+                rowsUpdated.addAndGet(updated);
+                chunkCount.incrementAndGet();
+                if (passEnded && !done) {
+                    // rows may have been inserted behind this pass, so another one follows
+                    if (++sweep.passes >= maxSweepPasses) {
+                        throw new SQLException("Rows of " + backfill.getName() + " are still pending after " + sweep.passes
+                                + " passes, its assignments must make its pending condition false");
+                    }
+                    sweep.lastKey = null;
+                    sweep.pendingFound = 0;
+                } else if (!passEnded) {
+                    sweep.lastKey = keys.get(keys.size() - 1);
+                    sweep.pendingFound += keys.size();
+                }
+                return done;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void setLockTimeout(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select set_config('lock_timeout', ?, true)")) {
+            statement.setString(1, lockTimeoutMillis + "ms");
+            statement.execute();
+        }
+    }
+
+    private static UUID lastKey(Connection connection, Backfill backfill) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LAST_KEY_SQL)) {
+            statement.setString(1, backfill.getName());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getObject(1, UUID.class) : null;
+            }
+        }
+    }
+
+    private List<UUID> selectChunk(Connection connection, String sql, UUID lastKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            if (lastKey != null) {
+                statement.setObject(parameter++, lastKey);
+            }
+            statement.setInt(parameter, chunkRows);
+            List<UUID> keys = new ArrayList<>(chunkRows);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    keys.add(resultSet.getObject(1, UUID.class));
+                }
+            }
+            return keys;
+        }
+    }
+
+    private static int updateChunk(Connection connection, Backfill backfill, List<UUID> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Array keyArray = connection.createArrayOf("uuid", keys.toArray());
+        try (PreparedStatement statement = connection.prepareStatement(backfill.updateChunkSql())) {
+            statement.setArray(1, keyArray);
+            return statement.executeUpdate();
+        } finally {
+            keyArray.free();
+        }
+    }
+
+    private static void saveProgress(Connection connection, Backfill backfill, UUID lastKey, int updated) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SAVE_PROGRESS_SQL)) {
+            statement.setString(1, backfill.getName());
+            statement.setInt(2, backfill.getSchemaVersion());
+            statement.setObject(3, lastKey);
+            statement.setLong(4, updated);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * The backfills that have not completed yet, by name, with their schema versions.
+     */
+    public Map<String, Integer> getPendingBackfills() {
+        Map<String, Integer> pending = new HashMap<>();
+        for (Backfill backfill : backfills) {
+            if (!completed.contains(backfill.getName())) {
+                pending.put(backfill.getName(), backfill.getSchemaVersion());
+            }
+        }
+        return pending;
+    }
+
+    public long getRowsUpdated() {
+        return rowsUpdated.get();
+    }
+
+    public long getChunkCount() {
+        return chunkCount.get();
+    }
+
+    /**
+     * The number of chunks tried again after timing out on a lock or conflicting with another
+     * transaction.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getFailedBackfillCount() {
+        return failedBackfillCount.get();
+    }
+}
@@ -0,0 +1,29 @@
+package org.entityc.tutorial.migration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The backfills {@link OnlineBackfills} runs. Rows written before the creation date was always
+ * set, by an older bulk load for example, have none and so no place in the lists paged in order
+ * of it. These fill it in from the modification date, or the time of the backfill if there is
+ * none. {@link org.entityc.tutorial.web.user.KeysetQueries} reads those lists in primary key order
+ * until the backfill of the table has completed.
+ */
+@Configuration
+public class SchemaBackfills {
+    public static final String TUTORIAL_CREATED_ON = "tutorial.created_on";
+    public static final String LOCALIZED_CONTENT_CREATED_ON = "localized_content.created_on";
+
+    @Bean
+    Backfill tutorialCreatedOn() {
+        return Backfill.of(TUTORIAL_CREATED_ON, 1, "tutorial", "tutorial_id",
+                "created_on = coalesce(modified_on, now())", "created_on is null");
+    }
+
+    @Bean
+    Backfill localizedContentCreatedOn() {
+        return Backfill.of(LOCALIZED_CONTENT_CREATED_ON, 1, "localized_content", "localized_content_id",
+                "created_on = coalesce(modified_on, now())", "created_on is null");
+    }
+}
@@ -0,0 +1,59 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.bulk.CopyText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.function.Consumer;
+
+/**
+ * Drops what the caches hold when rows are loaded with the generated bulk copy classes, whose
+ * COPY runs none of the entity listeners. Any load clears the content lists and the navigation
+ * and rebuilds the localized text snapshot, right away and again once the transaction completes
+ * as the entity listeners do. The tutorial documents need nothing, since they read their section
+ * versions from the database on every build.
+ */
+@Component
+public class BulkLoadInvalidation {
+    @Autowired
+    private ContentListCache contentListCache;
+
+    @Autowired
+    private NavigationReadModel navigationReadModel;
+
+    @Autowired
+    private LocalizedTextSnapshots localizedTextSnapshots;
+
+    private final Consumer<String> listener = this::tableLoaded;
+
+    @PostConstruct
+    private void start() {
+        CopyText.addLoadListener(listener);
+    }
+
+    @PreDestroy
+    private void stop() {
+        CopyText.removeLoadListener(listener);
+    }
+
+    private void tableLoaded(String table) {
+        Runnable invalidation = () -> {
+            contentListCache.clear();
+            navigationReadModel.clear();
+            localizedTextSnapshots.rebuild();
+        };
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
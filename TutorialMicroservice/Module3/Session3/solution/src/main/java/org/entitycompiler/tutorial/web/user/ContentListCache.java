@@ -0,0 +1,299 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.dto.ModuleDto;
+import org.entityc.tutorial.dto.SessionDto;
+import org.entityc.tutorial.dto.TutorialDto;
+import org.entityc.tutorial.exception.ServiceException;
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.model.Tutorial;
+import org.entityc.tutorial.web.user.LocalizedTextResolver.Binding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the pages of tutorials, modules and sessions listed on the user pages,
+ * which are read by keyset with {@link KeysetQueries}. Pages are cached by the method, its
+ * arguments (including the cursor) and the logged in user's preferred language (since titles
+ * are localized) and at most {@code maxSize} pages are kept, dropping the least recently used
+ * one when full. A page is loaded again once it has been cached for {@code timeToLiveSeconds},
+ * which bounds how long writes this instance does not see (from another instance or a bulk load)
+ * are missed.
+ * <p>
+ * Each page belongs to a list: all tutorials, the modules of one tutorial or the sessions of one
+ * module. {@link ContentListEntityListener} passes each written tutorial, module, session and
+ * localized content, and the cache records the time for the lists it appears in: the list of its
+ * parent, any list it was shown in before (in case it moved) and, for localized content, the
+ * lists showing an object whose text it is. A page is only returned from the cache if it was
+ * loaded after the latest write to its list.
+ */
+@Component
+public class ContentListCache {
+    private static final List<Object> TUTORIAL_LIST = Collections.singletonList(Tutorial.class);
+
+    @Autowired
+    private KeysetQueries keysetQueries;
+    @Autowired
+    private LoggedInUserCache loggedInUserCache;
+    @Autowired
+    private LocalizedTextResolver localizedTextResolver;
+
+    @Value("${tutorial.contentListCache.maxSize:1000}")
+    private int maxSize;
+
+    @Value("${tutorial.contentListCache.timeToLiveSeconds:60}")
+    private long timeToLiveSeconds;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    // latest modification time (in milliseconds) of each list
+    private final Map<List<Object>, AtomicLong> lastModified = new ConcurrentHashMap<>();
+
+    // the lists each object and each content shown on a cached page appeared in
+    private final Map<UUID, Set<List<Object>>> listsById = new ConcurrentHashMap<>();
+
+    // in access order so the eldest entry is the least recently used one
+    private final Map<List<Object>, CachedPage> pagesByKey = new LinkedHashMap<List<Object>, CachedPage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedPage> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private static final class CachedPage {
+        private final KeysetPage<?> page;
+        private final long loadedAt;
+        private final long expiresAt;
+        private final List<Object> list;
+
+        private CachedPage(KeysetPage<?> page, long loadedAt, long expiresAt, List<Object> list) {
+            this.page = page;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+            this.list = list;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageLoader<T> {
+        KeysetPage<T> load() throws ServiceException;
+    }
+
+    @PostConstruct
+    private void registerWithListener() {
+        ContentListEntityListener.setCache(this);
+    }
+
+    /**
+     * Returns a page of tutorials with their text in the user's preferred language.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     */
+    public KeysetPage<TutorialDto> getTutorialDtoPage(String cursor, int limit) throws ServiceException {
+        return get(Arrays.asList("getTutorialDtoPage", cursor, limit), TUTORIAL_LIST,
+                () -> localize(keysetQueries.getTutorialDtos(cursor, limit),
+                        Binding.of(TutorialDto::getTitleContentId, TutorialDto::setTitle),
+                        Binding.of(TutorialDto::getSummaryContentId, TutorialDto::setSummary)),
+                TutorialDto::getId, TutorialDto::getTitleContentId, TutorialDto::getSummaryContentId);
+    }
+
+    /**
+     * Returns a page of the tutorial's modules with their text in the user's preferred language.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     */
+    public KeysetPage<ModuleDto> getModuleDtoPageByTutorial(UUID tutorialId, String cursor, int limit) throws ServiceException {
+        return get(Arrays.asList("getModuleDtoPageByTutorial", tutorialId, cursor, limit), moduleList(tutorialId),
+                () -> localize(keysetQueries.getModuleDtosByTutorial(tutorialId, cursor, limit),
+                        Binding.of(ModuleDto::getTitleContentId, ModuleDto::setTitle),
+                        Binding.of(ModuleDto::getSummaryContentId, ModuleDto::setSummary)),
+                ModuleDto::getId, ModuleDto::getTitleContentId, ModuleDto::getSummaryContentId);
+    }
+
+    /**
+     * Returns a page of the module's sessions with their text in the user's preferred language.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     */
+    public KeysetPage<SessionDto> getSessionDtoPageByModule(UUID moduleId, String cursor, int limit) throws ServiceException {
+        return get(Arrays.asList("getSessionDtoPageByModule", moduleId, cursor, limit), sessionList(moduleId),
+                () -> localize(keysetQueries.getSessionDtosByModule(moduleId, cursor, limit),
+                        Binding.of(SessionDto::getTitleContentId, SessionDto::setTitle),
+                        Binding.of(SessionDto::getObjectiveContentId, SessionDto::setObjective)),
+                SessionDto::getId, SessionDto::getTitleContentId, SessionDto::getObjectiveContentId);
+    }
+
+    private static List<Object> moduleList(UUID tutorialId) {
+        return Arrays.asList(Module.class, tutorialId);
+    }
+
+    private static List<Object> sessionList(UUID moduleId) {
+        return Arrays.asList(Session.class, moduleId);
+    }
+
+    // The text of the whole page is resolved in one query rather than one object at a time.
+    @SafeVarargs
+    private final <T> KeysetPage<T> localize(KeysetPage<T> page, Binding<T>... bindings) {
+        localizedTextResolver.resolve(page.getItems(), loggedInUserCache.getPreferredLanguageId(), bindings);
+        return page;
+    }
+
+    /**
+     * @param ids the id of each item and of each content it shows, recorded so that writing
+     *            any of them makes the page out of date
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private final <T> KeysetPage<T> get(List<Object> methodAndArguments, List<Object> list, PageLoader<T> loader,
+                                        Function<T, UUID>... ids) throws ServiceException {
+        List<Object> key = Arrays.asList(methodAndArguments, loggedInUserCache.getPreferredLanguageId());
+        long now = System.currentTimeMillis();
+        synchronized (pagesByKey) {
+            CachedPage cachedPage = pagesByKey.get(key);
+            if (cachedPage != null) {
+                if (isCurrent(cachedPage, now)) {
+                    hitCount.incrementAndGet();
+                    return (KeysetPage<T>) cachedPage.page;
+                }
+                pagesByKey.remove(key);
+            }
+        }
+        missCount.incrementAndGet();
+        // taken before loading so a write made during the load makes the page out of date
+        long loadedAt = now;
+        KeysetPage<T> loaded = loader.load();
+        KeysetPage<T> page = new KeysetPage<>(Collections.unmodifiableList(loaded.getItems()), loaded.getNextCursor());
+        for (T item : page.getItems()) {
+            for (Function<T, UUID> id : ids) {
+                UUID itemId = id.apply(item);
+                if (itemId != null) {
+                    listsById.computeIfAbsent(itemId, i -> ConcurrentHashMap.newKeySet()).add(list);
+                }
+            }
+        }
+        CachedPage cachedPage = new CachedPage(page, loadedAt, loadedAt + TimeUnit.SECONDS.toMillis(timeToLiveSeconds), list);
+        if (isCurrent(cachedPage, System.currentTimeMillis())) {
+            synchronized (pagesByKey) {
+                pagesByKey.put(key, cachedPage);
+            }
+        }
+        return page;
+    }
+
+    private boolean isCurrent(CachedPage cachedPage, long now) {
+        return now < cachedPage.expiresAt && cachedPage.loadedAt > lastModified(cachedPage.list).get();
+    }
+
+    private AtomicLong lastModified(List<Object> list) {
+        return lastModified.computeIfAbsent(list, l -> new AtomicLong());
+    }
+
+    /**
+     * Makes the pages of the tutorial list out of date.
+     */
+    public void tutorialModified(Date modifiedOn) {
+        listModified(TUTORIAL_LIST, modifiedOn);
+    }
+
+    /**
+     * Makes the pages of the modules of the module's tutorial, and of any tutorial it was shown
+     * in before, out of date.
+     */
+    public void moduleModified(UUID moduleId, UUID tutorialId, Date modifiedOn) {
+        if (tutorialId != null) {
+            listModified(moduleList(tutorialId), modifiedOn);
+        }
+        shownObjectModified(moduleId, modifiedOn);
+    }
+
+    /**
+     * Makes the pages of the sessions of the session's module, and of any module it was shown
+     * in before, out of date.
+     */
+    public void sessionModified(UUID sessionId, UUID moduleId, Date modifiedOn) {
+        if (moduleId != null) {
+            listModified(sessionList(moduleId), modifiedOn);
+        }
+        shownObjectModified(sessionId, modifiedOn);
+    }
+
+    /**
+     * Makes the pages showing the text of the content out of date.
+     */
+    public void localizedContentModified(UUID contentId, Date modifiedOn) {
+        shownObjectModified(contentId, modifiedOn);
+    }
+
+    private void shownObjectModified(UUID id, Date modifiedOn) {
+        if (id == null) {
+            return;
+        }
+        Set<List<Object>> lists = listsById.get(id);
+        if (lists != null) {
+            for (List<Object> list : lists) {
+                listModified(list, modifiedOn);
+            }
+        }
+    }
+
+    /**
+     * The later of the {@code modifiedOn} and the current time is used since a removed entity
+     * keeps the {@code modifiedOn} of its last update.
+     */
+    private void listModified(List<Object> list, Date modifiedOn) {
+        long modifiedAt = System.currentTimeMillis();
+        if (modifiedOn != null) {
+            modifiedAt = Math.max(modifiedAt, modifiedOn.getTime());
+        }
+        lastModified(list).accumulateAndGet(modifiedAt, Math::max);
+    }
+
+    public void clear() {
+        synchronized (pagesByKey) {
+            pagesByKey.clear();
+            listsById.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (pagesByKey) {
+            return pagesByKey.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * The number of pages dropped because the cache was full.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
@@ -0,0 +1,70 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.LocalizedContent;
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.model.Tutorial;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Passes each tutorial, module, session and localized content that is written to
+ * {@link ContentListCache}, with its parent and {@code modifiedOn}. Like
+ * {@link NavigationEntityListener} it is registered in {@code META-INF/orm.xml} and passes it
+ * again once the transaction completes.
+ */
+public class ContentListEntityListener {
+    private static volatile ContentListCache cache;
+
+    static void setCache(ContentListCache contentListCache) {
+        cache = contentListCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(Object entity) {
+        if (cache == null) {
+            return;
+        }
+        Runnable modified;
+        if (entity instanceof Tutorial) {
+            Date modifiedOn = ((Tutorial) entity).getModifiedOn();
+            modified = () -> cache.tutorialModified(modifiedOn);
+        } else if (entity instanceof Module) {
+            Module module = (Module) entity;
+            UUID moduleId = module.getId();
+            UUID tutorialId = module.getTutorialId();
+            Date modifiedOn = module.getModifiedOn();
+            modified = () -> cache.moduleModified(moduleId, tutorialId, modifiedOn);
+        } else if (entity instanceof Session) {
+            Session session = (Session) entity;
+            UUID sessionId = session.getId();
+            UUID moduleId = session.getModuleId();
+            Date modifiedOn = session.getModifiedOn();
+            modified = () -> cache.sessionModified(sessionId, moduleId, modifiedOn);
+        } else if (entity instanceof LocalizedContent) {
+            LocalizedContent localizedContent = (LocalizedContent) entity;
+            UUID contentId = localizedContent.getContentId();
+            Date modifiedOn = localizedContent.getModifiedOn();
+            modified = () -> cache.localizedContentModified(contentId, modifiedOn);
+        } else {
+            return;
+        }
+        modified.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    modified.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.entityc.tutorial.web.user;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The position after the last item of a {@link KeysetPage}: the value of the ordering key and
+ * the primary key of that item. It is passed to clients as an opaque string so they cannot
+ * depend on what is in it.
+ */
+final class KeysetCursor {
+    private final Object orderValue;
+    private final UUID id;
+
+    KeysetCursor(Object orderValue, UUID id) {
+        this.orderValue = orderValue;
+        this.id = id;
+    }
+
+    Object getOrderValue() {
+        return orderValue;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    String encode() {
+        String value;
+        if (orderValue instanceof Integer) {
+            value = "n:" + orderValue;
+        } else if (orderValue instanceof Timestamp) {
+            // keeps the microseconds the database stores, which a Date would round off
+            Timestamp timestamp = (Timestamp) orderValue;
+            value = "t:" + timestamp.getTime() + "." + timestamp.getNanos();
+        } else if (orderValue instanceof Date) {
+            value = "d:" + ((Date) orderValue).getTime();
+        } else {
+            value = "k:";
+        }
+        byte[] bytes = (value + ":" + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Returns the cursor in the string or null if there is none, meaning the first page.
+     */
+    static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            UUID id = parts.length == 3 ? UUID.fromString(parts[2]) : null;
+            if (id != null) {
+                switch (parts[0]) {
+                    case "n":
+                        return new KeysetCursor(Integer.valueOf(parts[1]), id);
+                    case "t":
+                        String[] time = parts[1].split("\\.", 2);
+                        if (time.length != 2) {
+                            break;
+                        }
+                        Timestamp timestamp = new Timestamp(Long.parseLong(time[0]));
+                        timestamp.setNanos(Integer.parseInt(time[1]));
+                        return new KeysetCursor(timestamp, id);
+                    case "d":
+                        return new KeysetCursor(new Date(Long.parseLong(parts[1])), id);
+                    case "k":
+                        return new KeysetCursor(null, id);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // bad Base64, number or UUID
+            throw new InvalidCursorException(cursor, e);
+        }
+        throw new InvalidCursorException(cursor);
+    }
+}
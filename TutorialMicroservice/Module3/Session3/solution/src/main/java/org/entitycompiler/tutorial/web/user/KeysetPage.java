@@ -0,0 +1,29 @@
+package org.entityc.tutorial.web.user;
+
+import java.util.List;
+
+/**
+ * One page of items read by {@link KeysetQueries} together with the cursor of the next page,
+ * which is null once there are no more items.
+ */
+public final class KeysetPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
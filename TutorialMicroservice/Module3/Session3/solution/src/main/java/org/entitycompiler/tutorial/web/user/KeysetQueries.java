@@ -0,0 +1,284 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.dto.ModuleDto;
+import org.entityc.tutorial.dto.SessionDto;
+import org.entityc.tutorial.dto.TutorialDto;
+import org.entityc.tutorial.exception.ServiceException;
+import org.entityc.tutorial.migration.OnlineBackfills;
+import org.entityc.tutorial.migration.SchemaBackfills;
+import org.entityc.tutorial.model.Exercise;
+import org.entityc.tutorial.model.LocalizedContent;
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.model.Step;
+import org.entityc.tutorial.model.Tutorial;
+import org.entityc.tutorial.service.ModuleService;
+import org.entityc.tutorial.service.SessionService;
+import org.entityc.tutorial.service.TutorialService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads tutorial content a page at a time by keyset instead of by offset. Each page continues
+ * after the ordering key (number, creation date or primary key) and primary key of the last
+ * item of the page before it, so the database seeks straight to it through the index however
+ * deep the page is, and items are not skipped or repeated when rows are added in between.
+ * <p>
+ * The public methods return pages of DTOs for the user pages, with the cursor of the next page
+ * as an opaque string. The entity pages and streams are only for the other components of this
+ * package. A stream reads every item this way so exports do not need to hold all of them or one
+ * long running query, and each page is detached from the persistence context once the stream
+ * has moved past it, so a long stream does not keep every entity it has read.
+ */
+@Component
+public class KeysetQueries {
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // the number of items each query of a stream reads
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TutorialService tutorialService;
+    @Autowired
+    private ModuleService moduleService;
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private OnlineBackfills onlineBackfills;
+
+    private enum Ordering {
+        NUMBER("number", Integer.class),
+        CREATED_ON("createdOn", Date.class),
+        PRIMARY_KEY(null, null);
+
+        private final String attributeName;
+        // the class of a cursor's order value, null for none
+        private final Class<?> orderValueClass;
+
+        Ordering(String attributeName, Class<?> orderValueClass) {
+            this.attributeName = attributeName;
+            this.orderValueClass = orderValueClass;
+        }
+
+        /**
+         * Whether a cursor with the order value can come from a list in this order.
+         */
+        boolean accepts(Object orderValue) {
+            return orderValueClass == null ? orderValue == null : orderValueClass.isInstance(orderValue);
+        }
+    }
+
+    /**
+     * Returns a page of tutorials in the order they were created, which is the order the
+     * unsorted list of the generated service usually came back in but is now guaranteed. Until
+     * the backfill {@link SchemaBackfills#TUTORIAL_CREATED_ON} has given every tutorial a creation
+     * date they are in primary key order instead, and a list keeps the order of its first page.
+     * The DTOs are not localized or hierarchical.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @throws InvalidCursorException if the cursor was not returned by this method
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<TutorialDto> getTutorialDtos(String cursor, int limit) throws ServiceException {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        KeysetPage<Tutorial> page = ordering(after, SchemaBackfills.TUTORIAL_CREATED_ON) == Ordering.CREATED_ON
+                ? page(Tutorial.class, null, null, Ordering.CREATED_ON, Tutorial::getCreatedOn, Tutorial::getId, after, limit)
+                : page(Tutorial.class, null, null, Ordering.PRIMARY_KEY, tutorial -> null, Tutorial::getId, after, limit);
+        List<TutorialDto> dtos = new ArrayList<>(page.getItems().size());
+        for (Tutorial tutorial : page.getItems()) {
+            dtos.add(tutorialService.dtoFromModel(tutorial, false));
+        }
+        return new KeysetPage<>(dtos, page.getNextCursor());
+    }
+
+    /**
+     * Returns a page of the tutorial's modules in order of their number. The DTOs are not
+     * localized or hierarchical.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @throws InvalidCursorException if the cursor was not returned by this method
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ModuleDto> getModuleDtosByTutorial(UUID tutorialId, String cursor, int limit) throws ServiceException {
+        KeysetPage<Module> page = getModulesByTutorial(tutorialId, cursor, limit);
+        List<ModuleDto> dtos = new ArrayList<>(page.getItems().size());
+        for (Module module : page.getItems()) {
+            dtos.add(moduleService.dtoFromModel(module, false));
+        }
+        return new KeysetPage<>(dtos, page.getNextCursor());
+    }
+
+    /**
+     * Returns a page of the module's sessions in order of their number. The DTOs are not
+     * localized or hierarchical.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @throws InvalidCursorException if the cursor was not returned by this method
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<SessionDto> getSessionDtosByModule(UUID moduleId, String cursor, int limit) throws ServiceException {
+        KeysetPage<Session> page = getSessionsByModule(moduleId, cursor, limit);
+        List<SessionDto> dtos = new ArrayList<>(page.getItems().size());
+        for (Session session : page.getItems()) {
+            dtos.add(sessionService.dtoFromModel(session, false));
+        }
+        return new KeysetPage<>(dtos, page.getNextCursor());
+    }
+
+    KeysetPage<Module> getModulesByTutorial(UUID tutorialId, String cursor, int limit) {
+        return page(Module.class, "tutorialId", tutorialId, Ordering.NUMBER, Module::getNumber, Module::getId,
+                KeysetCursor.decode(cursor), limit);
+    }
+
+    KeysetPage<Session> getSessionsByModule(UUID moduleId, String cursor, int limit) {
+        return page(Session.class, "moduleId", moduleId, Ordering.NUMBER, Session::getNumber, Session::getId,
+                KeysetCursor.decode(cursor), limit);
+    }
+
+    Stream<Module> streamModulesByTutorial(UUID tutorialId) {
+        return stream(cursor -> page(Module.class, "tutorialId", tutorialId, Ordering.NUMBER, Module::getNumber,
+                Module::getId, cursor, STREAM_PAGE_SIZE));
+    }
+
+    Stream<Session> streamSessionsByModule(UUID moduleId) {
+        return stream(cursor -> page(Session.class, "moduleId", moduleId, Ordering.NUMBER, Session::getNumber,
+                Session::getId, cursor, STREAM_PAGE_SIZE));
+    }
+
+    Stream<Exercise> streamExercisesBySession(UUID sessionId) {
+        return stream(cursor -> page(Exercise.class, "sessionId", sessionId, Ordering.NUMBER, Exercise::getNumber,
+                Exercise::getId, cursor, STREAM_PAGE_SIZE));
+    }
+
+    Stream<Step> streamStepsByExercise(UUID exerciseId) {
+        return stream(cursor -> page(Step.class, "exerciseId", exerciseId, Ordering.NUMBER, Step::getNumber,
+                Step::getId, cursor, STREAM_PAGE_SIZE));
+    }
+
+    Stream<LocalizedContent> streamLocalizedContents() {
+        if (!onlineBackfills.isCompleted(SchemaBackfills.LOCALIZED_CONTENT_CREATED_ON)) {
+            // a localized content without a creation date would be left out of that order
+            return stream(cursor -> page(LocalizedContent.class, null, null, Ordering.PRIMARY_KEY,
+                    localizedContent -> null, LocalizedContent::getId, cursor, STREAM_PAGE_SIZE));
+        }
+        return stream(cursor -> page(LocalizedContent.class, null, null, Ordering.CREATED_ON,
+                LocalizedContent::getCreatedOn, LocalizedContent::getId, cursor, STREAM_PAGE_SIZE));
+    }
+
+    /**
+     * The creation date order once the backfill that gives every row a creation date has
+     * completed, and primary key order before. A later page keeps the order of its cursor.
+     */
+    private Ordering ordering(KeysetCursor after, String createdOnBackfill) {
+        if (after != null) {
+            return Ordering.CREATED_ON.accepts(after.getOrderValue()) ? Ordering.CREATED_ON : Ordering.PRIMARY_KEY;
+        }
+        return onlineBackfills.isCompleted(createdOnBackfill) ? Ordering.CREATED_ON : Ordering.PRIMARY_KEY;
+    }
+
+    private <T> KeysetPage<T> page(Class<T> entityClass, String parentAttributeName, UUID parentId,
+                                   Ordering ordering, Function<T, Object> orderValue, Function<T, UUID> id,
+                                   KeysetCursor after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("The page size must be between 1 and " + MAX_PAGE_SIZE + ": " + limit);
+        }
+        if (after != null && !ordering.accepts(after.getOrderValue())) {
+            // such as a creation date cursor on a list ordered by number
+            throw new InvalidCursorException(after.encode());
+        }
+        String orderAttribute = ordering.attributeName != null ? "e." + ordering.attributeName : null;
+        StringBuilder jpql = new StringBuilder("select e from ").append(entityClass.getSimpleName()).append(" e where 1 = 1");
+        if (parentAttributeName != null) {
+            jpql.append(" and e.").append(parentAttributeName).append(" = :parentId");
+        }
+        if (after != null) {
+            if (orderAttribute != null) {
+                jpql.append(" and (").append(orderAttribute).append(" > :orderValue or (")
+                        .append(orderAttribute).append(" = :orderValue and e.id > :id))");
+            } else {
+                jpql.append(" and e.id > :id");
+            }
+        }
+        jpql.append(" order by ");
+        if (orderAttribute != null) {
+            jpql.append(orderAttribute).append(", ");
+        }
+        jpql.append("e.id");
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), entityClass);
+        if (parentAttributeName != null) {
+            query.setParameter("parentId", parentId);
+        }
+        if (after != null) {
+            if (orderAttribute != null) {
+                query.setParameter("orderValue", after.getOrderValue());
+            }
+            query.setParameter("id", after.getId());
+        }
+        // one more than asked for tells whether there is a next page without another query
+        List<T> items = query.setMaxResults(limit + 1).getResultList();
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            T last = items.get(limit - 1);
+            nextCursor = new KeysetCursor(orderValue.apply(last), id.apply(last)).encode();
+        }
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    private <T> Stream<T> stream(Function<KeysetCursor, KeysetPage<T>> pageReader) {
+        List<T> readItems = new ArrayList<>();
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<T> items;
+            private String nextCursor;
+            private boolean lastPage;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (items == null || !items.hasNext()) {
+                    if (lastPage) {
+                        return false;
+                    }
+                    // the consumer is done with the page before, so it no longer needs to be managed
+                    detach(readItems);
+                    KeysetPage<T> page = pageReader.apply(KeysetCursor.decode(nextCursor));
+                    readItems.addAll(page.getItems());
+                    items = page.getItems().iterator();
+                    nextCursor = page.getNextCursor();
+                    lastPage = !page.hasNext();
+                }
+                action.accept(items.next());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> detach(readItems));
+    }
+
+    // Detaches the entities rather than clearing the persistence context, since the caller may
+    // still be using others, such as the parent of a nested stream.
+    private void detach(List<?> entities) {
+        for (Object entity : entities) {
+            entityManager.detach(entity);
+        }
+        entities.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.Language;
+import org.entityc.tutorial.model.LocalizedContent;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Passes each localized content and language that is written to {@link LocalizedTextSnapshots}.
+ * Like {@link NavigationEntityListener} it is registered in {@code META-INF/orm.xml}. A change is
+ * only passed once its transaction has committed, so a rolled back write never reaches the
+ * snapshot.
+ */
+public class LocalizedTextEntityListener {
+    private static volatile LocalizedTextSnapshots snapshots;
+
+    static void setSnapshots(LocalizedTextSnapshots localizedTextSnapshots) {
+        snapshots = localizedTextSnapshots;
+    }
+
+    @PostPersist
+    public void entityCreated(Object entity) {
+        entityWritten(entity, true);
+    }
+
+    @PostUpdate
+    public void entityUpdated(Object entity) {
+        entityWritten(entity, false);
+    }
+
+    @PostRemove
+    public void entityRemoved(Object entity) {
+        if (snapshots == null) {
+            return;
+        }
+        if (entity instanceof LocalizedContent) {
+            LocalizedContent localizedContent = (LocalizedContent) entity;
+            UUID contentId = localizedContent.getContentId();
+            UUID languageId = localizedContent.getLanguageId();
+            afterCommit(() -> snapshots.localizedContentRemoved(contentId, languageId));
+        } else if (entity instanceof Language) {
+            afterCommit(() -> snapshots.languageChanged());
+        }
+    }
+
+    private void entityWritten(Object entity, boolean created) {
+        if (snapshots == null) {
+            return;
+        }
+        if (entity instanceof LocalizedContent) {
+            LocalizedContent localizedContent = (LocalizedContent) entity;
+            UUID contentId = localizedContent.getContentId();
+            UUID languageId = localizedContent.getLanguageId();
+            String text = localizedContent.getText();
+            Date modifiedOn = localizedContent.getModifiedOn();
+            afterCommit(() -> snapshots.localizedContentWritten(contentId, languageId, text, modifiedOn, created));
+        } else if (entity instanceof Language) {
+            afterCommit(() -> snapshots.languageChanged());
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.LocalizedContent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Resolves the localized text of many contents at once. Resolving the text of each object on its
+ * own costs a query per localized attribute of every object in a list; this collects the content
+ * ids of all of them and looks them up in {@link LocalizedTextSnapshots}. Until the first snapshot
+ * has been built it reads their localized content in one query (or one per {@link #MAX_IDS_PER_QUERY}
+ * ids) instead. The text in the requested language is used, otherwise the text in
+ * {@code tutorial.localization.defaultLanguageCode}.
+ */
+@Component
+public class LocalizedTextResolver {
+    public static final int MAX_IDS_PER_QUERY = 1000;
+
+    @Autowired
+    private LocalizedTextSnapshots localizedTextSnapshots;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${tutorial.localization.defaultLanguageCode:en}")
+    private String defaultLanguageCode;
+
+    /**
+     * A localized attribute of a class of objects: where to find its content id and where to
+     * put its text.
+     */
+    public static final class Binding<T> {
+        private final Function<T, UUID> contentId;
+        private final BiConsumer<T, String> text;
+
+        private Binding(Function<T, UUID> contentId, BiConsumer<T, String> text) {
+            this.contentId = contentId;
+            this.text = text;
+        }
+
+        public static <T> Binding<T> of(Function<T, UUID> contentId, BiConsumer<T, String> text) {
+            return new Binding<>(contentId, text);
+        }
+    }
+
+    /**
+     * Sets the text of every bound attribute of the objects, reading all of them together.
+     */
+    @SafeVarargs
+    public final <T> void resolve(Collection<T> objects, UUID languageId, Binding<T>... bindings) {
+        Set<UUID> contentIds = new LinkedHashSet<>();
+        for (T object : objects) {
+            for (Binding<T> binding : bindings) {
+                UUID contentId = binding.contentId.apply(object);
+                if (contentId != null) {
+                    contentIds.add(contentId);
+                }
+            }
+        }
+        Map<UUID, String> texts = findTexts(contentIds, languageId);
+        for (T object : objects) {
+            for (Binding<T> binding : bindings) {
+                UUID contentId = binding.contentId.apply(object);
+                if (contentId != null) {
+                    binding.text.accept(object, texts.get(contentId));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the text of each content that has one in the language or the default language.
+     */
+    public Map<UUID, String> findTexts(Collection<UUID> contentIds, UUID languageId) {
+        Map<UUID, String> texts = localizedTextSnapshots.getTexts(contentIds, languageId);
+        if (texts != null) {
+            return texts;
+        }
+        texts = new HashMap<>();
+        Map<UUID, String> defaultTexts = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(contentIds);
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<UUID> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+            List<LocalizedContent> localizedContents = entityManager.createQuery(
+                            "select c from LocalizedContent c where c.contentId in :contentIds"
+                                    + " and (c.languageId = :languageId"
+                                    + " or c.languageId in (select l.id from Language l where l.code = :defaultLanguageCode))",
+                            LocalizedContent.class)
+                    .setParameter("contentIds", chunk)
+                    .setParameter("languageId", languageId)
+                    .setParameter("defaultLanguageCode", defaultLanguageCode)
+                    .getResultList();
+            for (LocalizedContent localizedContent : localizedContents) {
+                if (languageId != null && languageId.equals(localizedContent.getLanguageId())) {
+                    texts.put(localizedContent.getContentId(), localizedContent.getText());
+                } else {
+                    defaultTexts.put(localizedContent.getContentId(), localizedContent.getText());
+                }
+            }
+        }
+        defaultTexts.forEach(texts::putIfAbsent);
+        return texts;
+    }
+}
@@ -0,0 +1,319 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.LocalizedContent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Holds all localized text in memory as an immutable map of content id to text for each
+ * language. Readers get the current snapshot from a volatile field and look the text up in
+ * plain hash maps, so they never lock or query the database.
+ * <p>
+ * A snapshot is only ever replaced by a newer one, never marked out of date, so readers keep
+ * using the one they have while the next is made. {@link LocalizedTextEntityListener} passes each
+ * localized content written in this instance once its transaction commits. The builder thread
+ * applies the changes that have arrived to copies of the maps of their languages only and swaps
+ * in a snapshot that shares the other languages' maps. A change to a language rebuilds the whole
+ * snapshot. Every {@code snapshotCheckSeconds} the builder compares the latest {@code modifiedOn}
+ * and the number of localized contents in the database with those the snapshot was made from,
+ * and rebuilds it if they differ, which picks up writes from another instance, by SQL or by a
+ * bulk load. A localized content moved to another content or language is only corrected by a
+ * rebuild.
+ * <p>
+ * A build reads everything in one read-only transaction. A build that fails is tried again after
+ * {@code snapshotRetryMillis}, doubling the wait after each failure in a row up to
+ * {@code snapshotMaxRetryMillis}; the previous snapshot is used until then.
+ */
+@Component
+public class LocalizedTextSnapshots {
+    @Autowired
+    private KeysetQueries keysetQueries;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${tutorial.localization.defaultLanguageCode:en}")
+    private String defaultLanguageCode;
+
+    @Value("${tutorial.localization.snapshotRetryMillis:1000}")
+    private long retryMillis;
+
+    @Value("${tutorial.localization.snapshotMaxRetryMillis:60000}")
+    private long maxRetryMillis;
+
+    @Value("${tutorial.localization.snapshotCheckSeconds:30}")
+    private long checkSeconds;
+
+    private static final class Snapshot {
+        private final Map<UUID, Map<UUID, String>> textsByLanguage;
+        private final UUID defaultLanguageId;
+
+        private Snapshot(Map<UUID, Map<UUID, String>> textsByLanguage, UUID defaultLanguageId) {
+            this.textsByLanguage = textsByLanguage;
+            this.defaultLanguageId = defaultLanguageId;
+        }
+    }
+
+    // A committed write of one localized content: its new text, or null text if it was removed.
+    private static final class Change {
+        private final UUID contentId;
+        private final UUID languageId;
+        private final String text;
+        private final long modifiedAt;
+        private final int countDelta;
+
+        private Change(UUID contentId, UUID languageId, String text, long modifiedAt, int countDelta) {
+            this.contentId = contentId;
+            this.languageId = languageId;
+            this.text = text;
+            this.modifiedAt = modifiedAt;
+            this.countDelta = countDelta;
+        }
+    }
+
+    // null until the first snapshot has been built
+    private volatile Snapshot snapshot;
+
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean changesScheduled = new AtomicBoolean();
+    private final AtomicBoolean buildScheduled = new AtomicBoolean();
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong failedBuildCount = new AtomicLong();
+    private final AtomicLong appliedChangeCount = new AtomicLong();
+
+    // only used on the builder thread: what the database held as far as the snapshot knows
+    private long latestModifiedAt;
+    private long localizedContentCount;
+    private int failuresInARow;
+
+    private ScheduledExecutorService builder;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    private void start() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "localized-text-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalizedTextEntityListener.setSnapshots(this);
+        scheduleBuild();
+        builder.scheduleWithFixedDelay(this::check, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        builder.shutdownNow();
+    }
+
+    public boolean isBuilt() {
+        return snapshot != null;
+    }
+
+    /**
+     * Returns the text of each content that has one in the language or the default language, or
+     * null if no snapshot has been built yet.
+     */
+    public Map<UUID, String> getTexts(Collection<UUID> contentIds, UUID languageId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        Map<UUID, String> languageTexts = current.textsByLanguage.getOrDefault(languageId, Collections.emptyMap());
+        Map<UUID, String> defaultTexts = current.textsByLanguage.getOrDefault(current.defaultLanguageId, Collections.emptyMap());
+        Map<UUID, String> texts = new HashMap<>();
+        for (UUID contentId : contentIds) {
+            String text = languageTexts.get(contentId);
+            if (text == null) {
+                text = defaultTexts.get(contentId);
+            }
+            if (text != null) {
+                texts.put(contentId, text);
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Applies a committed insert or update of a localized content to the snapshot.
+     */
+    public void localizedContentWritten(UUID contentId, UUID languageId, String text, Date modifiedOn, boolean created) {
+        addChange(new Change(contentId, languageId, text, modifiedOn != null ? modifiedOn.getTime() : 0, created ? 1 : 0));
+    }
+
+    /**
+     * Applies a committed removal of a localized content to the snapshot.
+     */
+    public void localizedContentRemoved(UUID contentId, UUID languageId) {
+        addChange(new Change(contentId, languageId, null, 0, -1));
+    }
+
+    /**
+     * Schedules a new snapshot to be built, since the default language may have changed.
+     */
+    public void languageChanged() {
+        scheduleBuild();
+    }
+
+    /**
+     * Schedules a new snapshot to be built, for writes that did not go through JPA.
+     */
+    public void rebuild() {
+        scheduleBuild();
+    }
+
+    private void addChange(Change change) {
+        changes.add(change);
+        if (changesScheduled.compareAndSet(false, true)) {
+            builder.execute(this::applyChanges);
+        }
+    }
+
+    // Copies the map of each language with a change once, however many changes it has.
+    private void applyChanges() {
+        // cleared first so a change added while applying schedules another run
+        changesScheduled.set(false);
+        Snapshot current = snapshot;
+        if (current == null) {
+            // the first build has not finished; it reads the changes from the database
+            changes.clear();
+            return;
+        }
+        Map<UUID, Map<UUID, String>> changedTexts = new HashMap<>();
+        for (Change change = changes.poll(); change != null; change = changes.poll()) {
+            Map<UUID, String> texts = changedTexts.computeIfAbsent(change.languageId,
+                    id -> new HashMap<>(current.textsByLanguage.getOrDefault(id, Collections.emptyMap())));
+            if (change.text != null) {
+                texts.put(change.contentId, change.text);
+            } else {
+                texts.remove(change.contentId);
+            }
+            latestModifiedAt = Math.max(latestModifiedAt, change.modifiedAt);
+            localizedContentCount += change.countDelta;
+            appliedChangeCount.incrementAndGet();
+        }
+        if (changedTexts.isEmpty()) {
+            return;
+        }
+        Map<UUID, Map<UUID, String>> textsByLanguage = new HashMap<>(current.textsByLanguage);
+        changedTexts.forEach((languageId, texts) -> textsByLanguage.put(languageId, Collections.unmodifiableMap(texts)));
+        snapshot = new Snapshot(Collections.unmodifiableMap(textsByLanguage), current.defaultLanguageId);
+    }
+
+    // Rebuilds the snapshot if the database has changes it did not hear about.
+    private void check() {
+        if (snapshot == null || buildScheduled.get()) {
+            return;
+        }
+        try {
+            Object[] latest = readOnlyTransaction.execute(status -> entityManager.createQuery(
+                            "select max(c.modifiedOn), count(c) from LocalizedContent c", Object[].class)
+                    .getSingleResult());
+            long modifiedAt = latest[0] != null ? ((Date) latest[0]).getTime() : 0;
+            long count = ((Number) latest[1]).longValue();
+            if (modifiedAt != latestModifiedAt || count != localizedContentCount) {
+                scheduleBuild();
+            }
+        } catch (RuntimeException e) {
+            // tried again at the next check
+        }
+    }
+
+    private void scheduleBuild() {
+        if (buildScheduled.compareAndSet(false, true)) {
+            builder.execute(this::build);
+        }
+    }
+
+    private void build() {
+        // cleared first so a language change made while building schedules another build
+        buildScheduled.set(false);
+        try {
+            readOnlyTransaction.execute(status -> {
+                Map<UUID, Map<UUID, String>> textsByLanguage = new HashMap<>();
+                long latest = 0;
+                long count = 0;
+                try (Stream<LocalizedContent> localizedContents = keysetQueries.streamLocalizedContents()) {
+                    for (Iterator<LocalizedContent> iterator = localizedContents.iterator(); iterator.hasNext(); ) {
+                        LocalizedContent localizedContent = iterator.next();
+                        textsByLanguage.computeIfAbsent(localizedContent.getLanguageId(), id -> new HashMap<>())
+                                .put(localizedContent.getContentId(), localizedContent.getText());
+                        if (localizedContent.getModifiedOn() != null) {
+                            latest = Math.max(latest, localizedContent.getModifiedOn().getTime());
+                        }
+                        count++;
+                    }
+                }
+                textsByLanguage.replaceAll((languageId, texts) -> Collections.unmodifiableMap(texts));
+                List<UUID> defaultLanguageIds = entityManager.createQuery(
+                                "select l.id from Language l where l.code = :code", UUID.class)
+                        .setParameter("code", defaultLanguageCode)
+                        .getResultList();
+                UUID defaultLanguageId = defaultLanguageIds.isEmpty() ? null : defaultLanguageIds.get(0);
+                snapshot = new Snapshot(Collections.unmodifiableMap(textsByLanguage), defaultLanguageId);
+                latestModifiedAt = latest;
+                localizedContentCount = count;
+                return null;
+            });
+            buildCount.incrementAndGet();
+            failuresInARow = 0;
+        } catch (RuntimeException e) {
+            // readers keep the previous snapshot until a retry succeeds
+            failedBuildCount.incrementAndGet();
+            failuresInARow++;
+            scheduleRetry();
+        }
+    }
+
+    private void scheduleRetry() {
+        // a language change made during the failed build has already scheduled the next build
+        if (buildScheduled.compareAndSet(false, true)) {
+            long delay = Math.min(retryMillis << Math.min(failuresInARow - 1, 20), maxRetryMillis);
+            builder.schedule(this::build, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getBuildCount() {
+        return buildCount.get();
+    }
+
+    public long getFailedBuildCount() {
+        return failedBuildCount.get();
+    }
+
+    /**
+     * The number of written localized contents applied to the snapshot without a rebuild.
+     */
+    public long getAppliedChangeCount() {
+        return appliedChangeCount.get();
+    }
+}
@@ -0,0 +1,51 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.User;
+
+import java.util.UUID;
+
+/**
+ * What pages need to know about the logged in user, copied out of the {@link User} entity so it
+ * can be cached and shared between requests without holding on to the entity.
+ */
+public final class LoggedInUser {
+    private final UUID id;
+    private final String email;
+    private final String firstName;
+    private final UUID preferredLanguageId;
+
+    public LoggedInUser(UUID id, String email, String firstName, UUID preferredLanguageId) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.preferredLanguageId = preferredLanguageId;
+    }
+
+    /**
+     * Copies the user. Only the id of the preferred language is read, which a lazy reference
+     * already holds, so the language itself is never loaded.
+     */
+    public static LoggedInUser of(User user) {
+        UUID preferredLanguageId = user.getPreferredLanguage() != null ? user.getPreferredLanguage().getId() : null;
+        return new LoggedInUser(user.getId(), user.getEmail(), user.getFirstName(), preferredLanguageId);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * The id of the user's preferred language or null if they have not chosen one.
+     */
+    public UUID getPreferredLanguageId() {
+        return preferredLanguageId;
+    }
+}
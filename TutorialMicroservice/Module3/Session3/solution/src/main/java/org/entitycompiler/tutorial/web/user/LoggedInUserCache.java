@@ -0,0 +1,161 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.User;
+import org.entityc.tutorial.security.PersistentUserDetailsService;
+import org.entityc.tutorial.security.SecurityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the user of each logged in email address so pages can show who is logged in
+ * without querying the database on every request. Users are cached as {@link LoggedInUser}
+ * values rather than entities, so every request can share them. It holds at most
+ * {@code maxSize} users, dropping the least recently used one when full, and each user is looked
+ * up again once it has been cached for {@code timeToLiveSeconds}.
+ * {@link LoggedInUserEntityListener} drops a user as soon as it is modified.
+ */
+@Component
+public class LoggedInUserCache {
+    @Autowired
+    private SecurityService securityService;
+
+    @Autowired
+    private PersistentUserDetailsService userDetailsService;
+
+    @Value("${tutorial.loggedInUserCache.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${tutorial.loggedInUserCache.timeToLiveSeconds:300}")
+    private long timeToLiveSeconds;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    // Bumped on every invalidation so a load that was running at the same time does not
+    // store what it read before the write.
+    private final AtomicLong generation = new AtomicLong();
+
+    // in access order so the eldest entry is the least recently used one
+    private final Map<String, CachedUser> usersByEmail = new LinkedHashMap<String, CachedUser>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private static final class CachedUser {
+        private final LoggedInUser user;
+        private final long expiresAt;
+
+        private CachedUser(LoggedInUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @PostConstruct
+    private void registerWithListener() {
+        LoggedInUserEntityListener.setCache(this);
+    }
+
+    /**
+     * Returns the logged in user or null if no one is logged in.
+     */
+    public LoggedInUser getLoggedInUser() {
+        String email = securityService.findLoggedInUsername();
+        if (email == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        synchronized (usersByEmail) {
+            CachedUser cachedUser = usersByEmail.get(email);
+            if (cachedUser != null) {
+                if (now - cachedUser.expiresAt < 0) {
+                    hitCount.incrementAndGet();
+                    return cachedUser.user;
+                }
+                usersByEmail.remove(email);
+                evictionCount.incrementAndGet();
+            }
+        }
+        missCount.incrementAndGet();
+        long loadGeneration = generation.get();
+        User user = userDetailsService.findByEmail(email);
+        if (user == null) {
+            return null;
+        }
+        LoggedInUser loggedInUser = LoggedInUser.of(user);
+        synchronized (usersByEmail) {
+            if (generation.get() == loadGeneration) {
+                usersByEmail.put(email, new CachedUser(loggedInUser, now + TimeUnit.SECONDS.toNanos(timeToLiveSeconds)));
+            }
+        }
+        return loggedInUser;
+    }
+
+    /**
+     * Returns the id of the logged in user's preferred language or null if there is no logged in
+     * user or they have not chosen one.
+     */
+    public UUID getPreferredLanguageId() {
+        LoggedInUser user = getLoggedInUser();
+        return user != null ? user.getPreferredLanguageId() : null;
+    }
+
+    /**
+     * Drops the user, whether it is cached under its current email address or an earlier one.
+     */
+    public void userChanged(UUID userId) {
+        synchronized (usersByEmail) {
+            generation.incrementAndGet();
+            Iterator<CachedUser> cachedUsers = usersByEmail.values().iterator();
+            while (cachedUsers.hasNext()) {
+                if (userId.equals(cachedUsers.next().user.getId())) {
+                    cachedUsers.remove();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (usersByEmail) {
+            generation.incrementAndGet();
+            usersByEmail.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (usersByEmail) {
+            return usersByEmail.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * The number of users dropped because the cache was full or they had been cached too long.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
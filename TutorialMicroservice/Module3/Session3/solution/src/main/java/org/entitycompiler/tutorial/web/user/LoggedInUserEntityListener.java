@@ -0,0 +1,39 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.User;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Drops a user from {@link LoggedInUserCache} when it is modified or deleted. Like
+ * {@link NavigationEntityListener} it is registered in {@code META-INF/orm.xml} and drops the
+ * user again once the transaction completes.
+ */
+public class LoggedInUserEntityListener {
+    private static volatile LoggedInUserCache cache;
+
+    static void setCache(LoggedInUserCache loggedInUserCache) {
+        cache = loggedInUserCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(Object entity) {
+        if (cache == null || !(entity instanceof User)) {
+            return;
+        }
+        User user = (User) entity;
+        cache.userChanged(user.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.userChanged(user.getId());
+                }
+            });
+        }
+    }
+}
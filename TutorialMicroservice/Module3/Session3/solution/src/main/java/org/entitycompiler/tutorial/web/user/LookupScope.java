@@ -0,0 +1,189 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.exception.ServiceException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the independent service lookups of one page at the same time. The request thread forks
+ * each lookup, calls {@link #join()} to wait for all of them and then reads their results. If a
+ * lookup fails the others are cancelled and {@code join()} throws its exception. Closing the
+ * scope cancels any lookup still running and waits for it to stop, so no lookup outlives the
+ * request that forked it. The security context and request attributes of the request thread
+ * are passed to each lookup so the services see the same logged in user and language.
+ * <p>
+ * At most {@code maxPooled} lookups of a scope run on the {@link PageLookups} pool. Any others,
+ * and any forked while the pool is busy, run on the request thread as they are forked, so a page
+ * never waits for a pool thread or a second database connection that may never come free.
+ * <p>
+ * A scope belongs to the thread that opened it with {@link PageLookups#open()}.
+ */
+public final class LookupScope implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ServiceCall<T> {
+        T call() throws ServiceException;
+    }
+
+    public static final class Lookup<T> {
+        private final Future<T> future;
+
+        private Lookup(Future<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * Returns the result of the lookup. Only valid once {@link LookupScope#join()} has returned.
+         */
+        public T get() {
+            if (!future.isDone()) {
+                throw new IllegalStateException("The lookup has not finished, call join() first");
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("The lookup did not succeed", e);
+            }
+        }
+    }
+
+    private final PageLookups pageLookups;
+    private final int maxPooled;
+    private final Thread owner;
+    private final CompletionService<Object> completionService;
+    private final SecurityContext securityContext;
+    private final RequestAttributes requestAttributes;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private int pooledCount;
+    private int joinedCount;
+    private int runningCount;
+    private boolean closed;
+
+    LookupScope(PageLookups pageLookups, int maxPooled) {
+        this.pageLookups = pageLookups;
+        this.maxPooled = maxPooled;
+        this.owner = Thread.currentThread();
+        this.completionService = new ExecutorCompletionService<>(this::execute);
+        this.securityContext = SecurityContextHolder.getContext();
+        this.requestAttributes = RequestContextHolder.getRequestAttributes();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Lookup<T> fork(ServiceCall<T> call) {
+        if (closed) {
+            throw new IllegalStateException("The scope is closed");
+        }
+        Future<T> future = (Future<T>) completionService.submit(() -> run(call));
+        futures.add(future);
+        return new Lookup<>(future);
+    }
+
+    /**
+     * Waits until every forked lookup has finished. If one fails the rest are cancelled and its
+     * exception is thrown.
+     */
+    public void join() throws ServiceException {
+        while (joinedCount < futures.size()) {
+            Future<Object> future;
+            try {
+                future = completionService.take();
+                future.get();
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the page lookups");
+            } catch (ExecutionException e) {
+                cancelAll();
+                Throwable cause = e.getCause();
+                if (cause instanceof ServiceException) {
+                    throw (ServiceException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+            joinedCount++;
+        }
+    }
+
+    /**
+     * Cancels the lookups that have not finished and waits for those already running to stop.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        synchronized (this) {
+            closed = true;
+            cancelAll();
+            while (runningCount > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancelAll() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private void execute(Runnable lookup) {
+        if (pooledCount < maxPooled && pageLookups.tryExecute(lookup)) {
+            pooledCount++;
+            return;
+        }
+        if (pooledCount >= maxPooled) {
+            pageLookups.ranInline();
+        }
+        lookup.run();
+    }
+
+    private <T> T run(ServiceCall<T> call) throws ServiceException {
+        synchronized (this) {
+            // a lookup that only starts after the scope was closed must not run at all
+            if (closed) {
+                throw new CancellationException("The scope is closed");
+            }
+            runningCount++;
+        }
+        // a lookup run on the request thread already has the request's contexts
+        boolean pooled = Thread.currentThread() != owner;
+        if (pooled) {
+            SecurityContextHolder.setContext(securityContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+        }
+        try {
+            return call.call();
+        } finally {
+            if (pooled) {
+                SecurityContextHolder.clearContext();
+                RequestContextHolder.resetRequestAttributes();
+            }
+            synchronized (this) {
+                runningCount--;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.model.Tutorial;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps {@link NavigationReadModel} up to date when tutorials, modules and sessions are written.
+ * It is registered as a default entity listener in {@code META-INF/orm.xml} so the generated
+ * model classes do not need to change. The entries are dropped right away and again once the
+ * transaction completes, so a page loaded while the transaction was open cannot leave
+ * navigation that was read before the commit.
+ */
+public class NavigationEntityListener {
+    private static volatile NavigationReadModel readModel;
+
+    static void setReadModel(NavigationReadModel navigationReadModel) {
+        readModel = navigationReadModel;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(Object entity) {
+        if (readModel == null) {
+            return;
+        }
+        Runnable invalidation;
+        if (entity instanceof Session) {
+            Session session = (Session) entity;
+            invalidation = () -> readModel.sessionChanged(session.getId(), session.getModuleId());
+        } else if (entity instanceof Module) {
+            Module module = (Module) entity;
+            invalidation = () -> readModel.moduleChanged(module.getId(), module.getTutorialId());
+        } else if (entity instanceof Tutorial) {
+            Tutorial tutorial = (Tutorial) entity;
+            invalidation = () -> readModel.tutorialChanged(tutorial.getId());
+        } else {
+            return;
+        }
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
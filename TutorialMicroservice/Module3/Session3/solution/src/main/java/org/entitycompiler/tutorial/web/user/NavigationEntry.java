@@ -0,0 +1,89 @@
+package org.entityc.tutorial.web.user;
+
+import java.util.UUID;
+
+/**
+ * Where a module or session sits in the tutorial: its parent, the tutorial it belongs to and the
+ * objects before and after it when its parent's children are ordered by number. The siblings
+ * keep what a previous/next link shows so a page doesn't have to load them.
+ */
+public final class NavigationEntry {
+    private final UUID id;
+    private final int number;
+    private final UUID parentId;
+    private final UUID tutorialId;
+    private final Sibling previous;
+    private final Sibling next;
+
+    /**
+     * The module or session before or after another one.
+     */
+    public static final class Sibling {
+        private final UUID id;
+        private final int number;
+        private final UUID titleContentId;
+
+        public Sibling(UUID id, int number, UUID titleContentId) {
+            this.id = id;
+            this.number = number;
+            this.titleContentId = titleContentId;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * The content of its title, whose text depends on the language of the page.
+         */
+        public UUID getTitleContentId() {
+            return titleContentId;
+        }
+    }
+
+    public NavigationEntry(UUID id, int number, UUID parentId, UUID tutorialId, Sibling previous, Sibling next) {
+        this.id = id;
+        this.number = number;
+        this.parentId = parentId;
+        this.tutorialId = tutorialId;
+        this.previous = previous;
+        this.next = next;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * The module of a session or the tutorial of a module.
+     */
+    public UUID getParentId() {
+        return parentId;
+    }
+
+    public UUID getTutorialId() {
+        return tutorialId;
+    }
+
+    /**
+     * The sibling with the next lower number or null if this is the first.
+     */
+    public Sibling getPrevious() {
+        return previous;
+    }
+
+    /**
+     * The sibling with the next higher number or null if this is the last.
+     */
+    public Sibling getNext() {
+        return next;
+    }
+}
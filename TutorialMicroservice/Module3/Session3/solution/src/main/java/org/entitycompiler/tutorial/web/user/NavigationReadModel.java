@@ -0,0 +1,174 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.exception.ServiceException;
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.service.ModuleService;
+import org.entityc.tutorial.service.SessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the navigation of every module and session that has been viewed so a page can find its
+ * parent, tutorial and the number and title content of its previous/next siblings with one map
+ * lookup. The first lookup in a module
+ * (or tutorial) reads all of its sessions (or modules) in order of their number, a page at a
+ * time using {@link KeysetQueries}. {@link NavigationEntityListener} drops the affected entries
+ * whenever a tutorial, module or session is written.
+ */
+@Component
+public class NavigationReadModel {
+    @Autowired
+    private ModuleService moduleService;
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private KeysetQueries keysetQueries;
+
+    private final Map<UUID, NavigationEntry> sessionNavigation = new ConcurrentHashMap<>();
+    private final Map<UUID, NavigationEntry> moduleNavigation = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a load that was running at the same time does not
+    // store what it read before the write.
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    private void registerWithListener() {
+        NavigationEntityListener.setReadModel(this);
+    }
+
+    public NavigationEntry getSessionNavigation(UUID sessionId) throws ServiceException {
+        NavigationEntry entry = sessionNavigation.get(sessionId);
+        if (entry == null) {
+            long loadGeneration = generation.get();
+            Session session = sessionService.getSessionById(sessionId);
+            Module module = moduleService.getModuleById(session.getModuleId());
+            List<Session> sessions = new ArrayList<>();
+            String cursor = null;
+            do {
+                KeysetPage<Session> page = keysetQueries.getSessionsByModule(module.getId(), cursor, KeysetQueries.MAX_PAGE_SIZE);
+                sessions.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            Map<UUID, NavigationEntry> entries = new HashMap<>();
+            for (int i = 0; i < sessions.size(); i++) {
+                NavigationEntry.Sibling previous = i > 0 ? sibling(sessions.get(i - 1)) : null;
+                NavigationEntry.Sibling next = i < sessions.size() - 1 ? sibling(sessions.get(i + 1)) : null;
+                Session moduleSession = sessions.get(i);
+                entries.put(moduleSession.getId(), new NavigationEntry(moduleSession.getId(), moduleSession.getNumber(),
+                        module.getId(), module.getTutorialId(), previous, next));
+            }
+            entry = entries.get(sessionId);
+            if (entry == null) {
+                // created after the sessions were read
+                entry = new NavigationEntry(sessionId, session.getNumber(), module.getId(), module.getTutorialId(), null, null);
+            }
+            if (generation.get() == loadGeneration) {
+                sessionNavigation.putAll(entries);
+            }
+        }
+        return entry;
+    }
+
+    public NavigationEntry getModuleNavigation(UUID moduleId) throws ServiceException {
+        NavigationEntry entry = moduleNavigation.get(moduleId);
+        if (entry == null) {
+            long loadGeneration = generation.get();
+            Module module = moduleService.getModuleById(moduleId);
+            UUID tutorialId = module.getTutorialId();
+            List<Module> modules = new ArrayList<>();
+            String cursor = null;
+            do {
+                KeysetPage<Module> page = keysetQueries.getModulesByTutorial(tutorialId, cursor, KeysetQueries.MAX_PAGE_SIZE);
+                modules.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            Map<UUID, NavigationEntry> entries = new HashMap<>();
+            for (int i = 0; i < modules.size(); i++) {
+                NavigationEntry.Sibling previous = i > 0 ? sibling(modules.get(i - 1)) : null;
+                NavigationEntry.Sibling next = i < modules.size() - 1 ? sibling(modules.get(i + 1)) : null;
+                Module tutorialModule = modules.get(i);
+                entries.put(tutorialModule.getId(), new NavigationEntry(tutorialModule.getId(), tutorialModule.getNumber(),
+                        tutorialId, tutorialId, previous, next));
+            }
+            entry = entries.get(moduleId);
+            if (entry == null) {
+                entry = new NavigationEntry(moduleId, module.getNumber(), tutorialId, tutorialId, null, null);
+            }
+            if (generation.get() == loadGeneration) {
+                moduleNavigation.putAll(entries);
+            }
+        }
+        return entry;
+    }
+
+    private static NavigationEntry.Sibling sibling(Session session) {
+        return new NavigationEntry.Sibling(session.getId(), session.getNumber(), session.getTitleContentId());
+    }
+
+    private static NavigationEntry.Sibling sibling(Module module) {
+        return new NavigationEntry.Sibling(module.getId(), module.getNumber(), module.getTitleContentId());
+    }
+
+    /**
+     * Drops the navigation of the tutorial's modules and of every session in them.
+     */
+    public void tutorialChanged(UUID tutorialId) {
+        generation.incrementAndGet();
+        moduleNavigation.values().removeIf(entry -> entry.getTutorialId().equals(tutorialId));
+        sessionNavigation.values().removeIf(entry -> entry.getTutorialId().equals(tutorialId));
+    }
+
+    /**
+     * Drops the navigation of the module's siblings and its sessions. The module's previous
+     * tutorial is included in case the module was moved.
+     */
+    public void moduleChanged(UUID moduleId, UUID tutorialId) {
+        generation.incrementAndGet();
+        NavigationEntry previousEntry = moduleNavigation.get(moduleId);
+        if (previousEntry != null) {
+            tutorialChanged(previousEntry.getTutorialId());
+        }
+        if (tutorialId != null) {
+            tutorialChanged(tutorialId);
+        }
+        sessionNavigation.values().removeIf(entry -> entry.getParentId().equals(moduleId));
+    }
+
+    /**
+     * Drops the navigation of the session's siblings. The session's previous module is included
+     * in case the session was moved.
+     */
+    public void sessionChanged(UUID sessionId, UUID moduleId) {
+        generation.incrementAndGet();
+        NavigationEntry previousEntry = sessionNavigation.get(sessionId);
+        if (previousEntry != null) {
+            removeSessionsOfModule(previousEntry.getParentId());
+        }
+        if (moduleId != null) {
+            removeSessionsOfModule(moduleId);
+        }
+    }
+
+    /**
+     * Drops the navigation of every module and session.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        moduleNavigation.clear();
+        sessionNavigation.clear();
+    }
+
+    private void removeSessionsOfModule(UUID moduleId) {
+        sessionNavigation.values().removeIf(entry -> entry.getParentId().equals(moduleId));
+    }
+}
@@ -0,0 +1,115 @@
+package org.entityc.tutorial.web.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the threads that run the service lookups of the user pages. A page opens a
+ * {@link LookupScope}, forks its lookups and joins them, so the page takes as long as its
+ * slowest lookup instead of the sum of all of them.
+ * <p>
+ * Every lookup on a pool thread needs a database connection of its own while the request thread
+ * may already be holding one, so the pool is sized against the connection pool: it has
+ * {@code tutorial.pageLookups.threads} threads, by default half of
+ * {@code spring.datasource.hikari.maximum-pool-size}, leaving the rest for the request threads.
+ * A page runs at most {@code tutorial.pageLookups.perPage} of its lookups on the pool. A lookup
+ * never waits for a thread: when the page has used its share or every thread is busy, it runs
+ * on the request thread instead, using the request's own connection.
+ */
+@Component
+public class PageLookups {
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${tutorial.pageLookups.threads:0}")
+    private int threads;
+
+    @Value("${tutorial.pageLookups.perPage:3}")
+    private int perPage;
+
+    private final AtomicLong pooledCount = new AtomicLong();
+    private final AtomicLong inlineCount = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+    private Semaphore freeThreads;
+
+    @PostConstruct
+    private void start() {
+        if (threads <= 0) {
+            threads = Math.max(1, connectionPoolSize / 2);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "page-lookup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        freeThreads = new Semaphore(threads);
+        // no more lookups than threads are ever handed over, so the queue only covers the moment
+        // between a lookup finishing and its thread taking the next one
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), threadFactory);
+    }
+
+    @PreDestroy
+    private void stop() {
+        executor.shutdownNow();
+    }
+
+    public LookupScope open() {
+        return new LookupScope(this, perPage);
+    }
+
+    // Hands the lookup to a free pool thread and returns false if there is none.
+    boolean tryExecute(Runnable lookup) {
+        if (!freeThreads.tryAcquire()) {
+            inlineCount.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    lookup.run();
+                } finally {
+                    freeThreads.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            freeThreads.release();
+            inlineCount.incrementAndGet();
+            return false;
+        }
+        pooledCount.incrementAndGet();
+        return true;
+    }
+
+    void ranInline() {
+        inlineCount.incrementAndGet();
+    }
+
+    /**
+     * The number of lookups run on the pool.
+     */
+    public long getPooledCount() {
+        return pooledCount.get();
+    }
+
+    /**
+     * The number of lookups run on the request thread because the page had used its share of
+     * the pool or every thread was busy.
+     */
+    public long getInlineCount() {
+        return inlineCount.get();
+    }
+}
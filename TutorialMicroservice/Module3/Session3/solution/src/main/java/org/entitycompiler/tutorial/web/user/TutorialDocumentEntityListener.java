@@ -0,0 +1,39 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.model.Session;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostRemove;
+import java.util.UUID;
+
+/**
+ * Tells {@link TutorialDocumentWriter} when a session is deleted so the files of its section are
+ * removed. Like {@link NavigationEntityListener} it is registered in {@code META-INF/orm.xml}, and
+ * the files are removed once the transaction has committed.
+ */
+public class TutorialDocumentEntityListener {
+    private static volatile TutorialDocumentWriter writer;
+
+    static void setWriter(TutorialDocumentWriter tutorialDocumentWriter) {
+        writer = tutorialDocumentWriter;
+    }
+
+    @PostRemove
+    public void entityRemoved(Object entity) {
+        if (writer == null || !(entity instanceof Session)) {
+            return;
+        }
+        UUID sessionId = ((Session) entity).getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    writer.sessionRemoved(sessionId);
+                }
+            });
+        } else {
+            writer.sessionRemoved(sessionId);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.entityc.tutorial.web.user;
+
+import org.entityc.tutorial.dto.ModuleDto;
+import org.entityc.tutorial.dto.SessionDto;
+import org.entityc.tutorial.dto.TutorialDto;
+import org.entityc.tutorial.exception.ServiceException;
+import org.entityc.tutorial.model.Module;
+import org.entityc.tutorial.model.Session;
+import org.entityc.tutorial.service.ModuleService;
+import org.entityc.tutorial.service.SessionService;
+import org.entityc.tutorial.service.TutorialService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes the markdown document of a whole tutorial a section at a time. Modules and sessions are
+ * read a page at a time with {@link KeysetQueries} and each section is written out as soon as it
+ * is built. The persistence context is cleared after every section, so only one session with its
+ * exercises and steps is held in memory however large the tutorial is.
+ * <p>
+ * The section of each session is also kept in a file under
+ * {@code tutorial.documents.sectionDirectory}, named after the language and the version of the
+ * section: the latest {@code modifiedOn} of the session, its exercises, its steps and their
+ * localized content, with the number of each so a deletion changes it too. A later build reuses
+ * that file and only builds the sections whose entities were modified since. The versions are
+ * read from the database on every build, with a few grouped queries per module that load no
+ * entities, so writes made by another instance, by SQL or by a bulk load are seen as well.
+ * {@link TutorialDocumentEntityListener} removes the files of a session that is deleted.
+ * Deleting the directory makes the next build rebuild every section.
+ */
+@Component
+public class TutorialDocumentWriter {
+    // the tutorial is the top heading, then its modules, then their sessions
+    private static final int SESSION_SECTION_LEVEL = 3;
+
+    @Autowired
+    private TutorialService tutorialService;
+    @Autowired
+    private ModuleService moduleService;
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private KeysetQueries keysetQueries;
+    @Autowired
+    private LoggedInUserCache loggedInUserCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${tutorial.documents.sectionDirectory:${java.io.tmpdir}/tutorial-document-sections}")
+    private String sectionDirectory;
+
+    private Path sectionRoot;
+
+    private final AtomicLong sectionsBuilt = new AtomicLong();
+    private final AtomicLong sectionsReused = new AtomicLong();
+
+    @PostConstruct
+    private void start() {
+        sectionRoot = Paths.get(sectionDirectory).toAbsolutePath();
+        TutorialDocumentEntityListener.setWriter(this);
+    }
+
+    /**
+     * Removes the sections of sessions that were deleted while the application was not running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeDeletedSessions() throws IOException {
+        List<UUID> sessionIds = new ArrayList<>();
+        try (DirectoryStream<Path> sessionDirectories = Files.newDirectoryStream(sectionRoot)) {
+            for (Path sessionDirectory : sessionDirectories) {
+                try {
+                    sessionIds.add(UUID.fromString(sessionDirectory.getFileName().toString()));
+                } catch (IllegalArgumentException e) {
+                    // not a section directory
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        for (int from = 0; from < sessionIds.size(); from += KeysetQueries.MAX_PAGE_SIZE) {
+            List<UUID> ids = sessionIds.subList(from, Math.min(from + KeysetQueries.MAX_PAGE_SIZE, sessionIds.size()));
+            Set<UUID> existing = new HashSet<>(entityManager.createQuery(
+                            "select s.id from Session s where s.id in :ids", UUID.class)
+                    .setParameter("ids", ids)
+                    .getResultList());
+            for (UUID sessionId : ids) {
+                if (!existing.contains(sessionId)) {
+                    deleteSections(sessionId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the tutorial in the logged in user's preferred language, flushing after every section.
+     * It runs in its own read-only transaction, which the persistence context it clears belongs to.
+     */
+    @Transactional(readOnly = true)
+    public void writeMarkdown(UUID tutorialId, Writer out) throws ServiceException, IOException {
+        UUID languageId = loggedInUserCache.getPreferredLanguageId();
+        TutorialDto tutorial = tutorialService.getTutorialDtoById(tutorialId);
+        writeHeading(out, 1, tutorial.getTitle());
+        writeParagraph(out, tutorial.getSummary());
+        writeParagraph(out, tutorial.getOverview());
+        out.flush();
+        try (Stream<Module> modules = keysetQueries.streamModulesByTutorial(tutorialId)) {
+            for (Iterator<Module> moduleIterator = modules.iterator(); moduleIterator.hasNext(); ) {
+                ModuleDto module = moduleService.getModuleDtoById(moduleIterator.next().getId());
+                writeHeading(out, 2, "Module " + module.getNumber() + ": " + module.getTitle());
+                writeParagraph(out, module.getSummary());
+                writeParagraph(out, module.getOverview());
+                out.flush();
+                Map<UUID, SectionVersion> sectionVersions = loadSectionVersions(module.getId());
+                try (Stream<Session> sessions = keysetQueries.streamSessionsByModule(module.getId())) {
+                    for (Iterator<Session> sessionIterator = sessions.iterator(); sessionIterator.hasNext(); ) {
+                        Session session = sessionIterator.next();
+                        SectionVersion sectionVersion = sectionVersions.getOrDefault(session.getId(), new SectionVersion());
+                        writeSession(out, session, sectionVersion.toString(session), languageId);
+                        out.flush();
+                        // Drops the session's exercises, steps and content loaded to build it.
+                        // Only the ids and columns of the modules and sessions still to come are
+                        // read, which a detached entity keeps.
+                        entityManager.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeSession(Writer out, Session session, String sectionVersion, UUID languageId) throws ServiceException, IOException {
+        Path sessionDirectory = sectionRoot.resolve(session.getId().toString());
+        String language = languageId != null ? languageId.toString() : "default";
+        Path sectionFile = sessionDirectory.resolve(language + "-" + sectionVersion + ".md");
+        try (Reader reader = Files.newBufferedReader(sectionFile, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            for (int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+            out.write("\n");
+            sectionsReused.incrementAndGet();
+            return;
+        } catch (NoSuchFileException e) {
+            // not built since the session was last modified
+        }
+        SessionDto sessionDto = sessionService.getSessionDtoById(session.getId());
+        String markdown = sessionService.buildMarkdownDocSection(SESSION_SECTION_LEVEL, sessionDto, 1);
+        saveSection(sessionDirectory, sectionFile, language, markdown);
+        out.write(markdown);
+        out.write("\n");
+        sectionsBuilt.incrementAndGet();
+    }
+
+    /**
+     * What the version of a session's section is made of, apart from the session's own
+     * {@code modifiedOn}. The numbers are included since removing an exercise, step or localized
+     * content does not make anything newer.
+     */
+    private static final class SectionVersion {
+        private long latest;
+        private long exerciseCount;
+        private long stepCount;
+        private long localizedContentCount;
+
+        private String toString(Session session) {
+            return Math.max(latest, time(session.getModifiedOn())) + "-" + exerciseCount + "-" + stepCount + "-" + localizedContentCount;
+        }
+    }
+
+    // The sessions of the module, used by the queries below to find their exercises and steps.
+    private static final String MODULE_SESSION_IDS = "(select s.id from Session s where s.moduleId = :moduleId)";
+
+    /**
+     * Works out the section version of each of the module's sessions. Each query returns the
+     * session id, the latest {@code modifiedOn} and the number of rows of one part of the sections.
+     */
+    private Map<UUID, SectionVersion> loadSectionVersions(UUID moduleId) {
+        Map<UUID, SectionVersion> versions = new HashMap<>();
+        addToVersions(versions, moduleId, "select e.sessionId, max(e.modifiedOn), count(e) from Exercise e"
+                        + " where e.sessionId in " + MODULE_SESSION_IDS + " group by e.sessionId",
+                (version, count) -> version.exerciseCount += count);
+        addToVersions(versions, moduleId, "select e.sessionId, max(st.modifiedOn), count(st) from Step st, Exercise e"
+                        + " where st.exerciseId = e.id and e.sessionId in " + MODULE_SESSION_IDS + " group by e.sessionId",
+                (version, count) -> version.stepCount += count);
+        addToVersions(versions, moduleId, "select s.id, max(c.modifiedOn), count(c) from LocalizedContent c, Session s"
+                        + " where s.moduleId = :moduleId and (c.contentId = s.titleContentId"
+                        + " or c.contentId = s.objectiveContentId or c.contentId = s.discussionContentId) group by s.id",
+                (version, count) -> version.localizedContentCount += count);
+        addToVersions(versions, moduleId, "select e.sessionId, max(c.modifiedOn), count(c) from LocalizedContent c, Exercise e"
+                        + " where c.contentId = e.overviewContentId and e.sessionId in " + MODULE_SESSION_IDS
+                        + " group by e.sessionId",
+                (version, count) -> version.localizedContentCount += count);
+        addToVersions(versions, moduleId, "select e.sessionId, max(c.modifiedOn), count(c) from LocalizedContent c, Step st, Exercise e"
+                        + " where c.contentId = st.contentId and st.exerciseId = e.id and e.sessionId in " + MODULE_SESSION_IDS
+                        + " group by e.sessionId",
+                (version, count) -> version.localizedContentCount += count);
+        return versions;
+    }
+
+    private void addToVersions(Map<UUID, SectionVersion> versions, UUID moduleId, String jpql,
+                               ObjLongConsumer<SectionVersion> addCount) {
+        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class)
+                .setParameter("moduleId", moduleId)
+                .getResultList();
+        for (Object[] row : rows) {
+            SectionVersion version = versions.computeIfAbsent((UUID) row[0], id -> new SectionVersion());
+            version.latest = Math.max(version.latest, time((Date) row[1]));
+            addCount.accept(version, ((Number) row[2]).longValue());
+        }
+    }
+
+    /**
+     * Deletes the files of the session's section.
+     */
+    public void sessionRemoved(UUID sessionId) {
+        try {
+            deleteSections(sessionId);
+        } catch (IOException e) {
+            // left for removeDeletedSessions() at the next start
+        }
+    }
+
+    private void deleteSections(UUID sessionId) throws IOException {
+        Path sessionDirectory = sectionRoot.resolve(sessionId.toString());
+        try (DirectoryStream<Path> sections = Files.newDirectoryStream(sessionDirectory)) {
+            for (Path section : sections) {
+                Files.deleteIfExists(section);
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        Files.deleteIfExists(sessionDirectory);
+    }
+
+    // Written to a temporary file first so a build running at the same time never reads part
+    // of a section. Older versions of the section in the same language are deleted.
+    private static void saveSection(Path sessionDirectory, Path sectionFile, String language, String markdown) throws IOException {
+        Files.createDirectories(sessionDirectory);
+        Path temporaryFile = Files.createTempFile(sessionDirectory, "section", ".tmp");
+        try {
+            Files.write(temporaryFile, markdown.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile, sectionFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        try (DirectoryStream<Path> sections = Files.newDirectoryStream(sessionDirectory, language + "-*.md")) {
+            for (Path section : sections) {
+                if (!section.equals(sectionFile)) {
+                    Files.deleteIfExists(section);
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long time(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
+
+    private static void writeHeading(Writer out, int level, String title) throws IOException {
+        for (int i = 0; i < level; i++) {
+            out.write('#');
+        }
+        out.write(' ');
+        out.write(title != null ? title : "");
+        out.write("\n\n");
+    }
+
+    private static void writeParagraph(Writer out, String text) throws IOException {
+        if (text != null && !text.isEmpty()) {
+            out.write(text);
+            out.write("\n\n");
+        }
+    }
+
+    /**
+     * The number of session sections built since the application started.
+     */
+    public long getSectionsBuilt() {
+        return sectionsBuilt.get();
+    }
+
+    /**
+     * The number of session sections read back from their files instead of being built.
+     */
+    public long getSectionsReused() {
+        return sectionsReused.get();
+    }
+}
@@ -6,34 +6,32 @@ import org.entityc.tutorial.dto.SessionDto;
 import org.entityc.tutorial.dto.StepDto;
 import org.entityc.tutorial.dto.TutorialDto;
 import org.entityc.tutorial.exception.ServiceException;
-import org.entityc.tutorial.model.Module;
-import org.entityc.tutorial.model.Session;
-import org.entityc.tutorial.model.User;
-import org.entityc.tutorial.security.PersistentUserDetailsService;
-import org.entityc.tutorial.security.SecurityService;
 import org.entityc.tutorial.service.ExerciseService;
 import org.entityc.tutorial.service.ModuleService;
 import org.entityc.tutorial.service.SessionService;
 import org.entityc.tutorial.service.StepService;
 import org.entityc.tutorial.service.TutorialService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.Vector;
 
 @Controller
 public class UserWebPageController {
     @Autowired
-    private SecurityService securityService;
-
-    @Autowired
-    private PersistentUserDetailsService userDetailsService;
+    private LoggedInUserCache loggedInUserCache;
 
     @Autowired
     private TutorialService tutorialService;
@@ -45,63 +43,111 @@ public class UserWebPageController {
     private ExerciseService exerciseService;
     @Autowired
     private StepService stepService;
+    @Autowired
+    private NavigationReadModel navigationReadModel;
+    @Autowired
+    private ContentListCache contentListCache;
+    @Autowired
+    private PageLookups pageLookups;
+    @Autowired
+    private TutorialDocumentWriter tutorialDocumentWriter;
+    @Autowired
+    private LocalizedTextResolver localizedTextResolver;
+
+    // the number of tutorials, modules or sessions listed on a page
+    @Value("${tutorial.userPages.pageSize:100}")
+    private int pageSize;
 
     @GetMapping(value = {"/"})
-    public String homePage(Model model) throws ServiceException {
-        model.addAttribute("TutorialList", tutorialService.getTutorialDtoList(0, 100, true));
-        User user = userDetailsService.findByEmail(securityService.findLoggedInUsername());
+    public String homePage(Model model, @RequestParam(value = "cursor", required = false) String cursor) throws ServiceException {
+        KeysetPage<TutorialDto> tutorials = contentListCache.getTutorialDtoPage(cursor, pageSize);
+        model.addAttribute("TutorialList", tutorials.getItems());
+        model.addAttribute("nextCursor", tutorials.getNextCursor());
+        LoggedInUser user = loggedInUserCache.getLoggedInUser();
         model.addAttribute("loggedInUser", user);
         return "UserHome";
     }
 
     @GetMapping(value = {"/tutorial/{id}"})
-    public String tutorialPage(Model model, @PathVariable("id") UUID tutorialId) throws ServiceException {
-        TutorialDto tutorial = tutorialService.getTutorialDtoById(tutorialId);
-        model.addAttribute("Tutorial", tutorial);
-        model.addAttribute("ModulesList", moduleService.getModuleDtoListByTutorial(tutorialId, 0, 100, true));
-        User user = userDetailsService.findByEmail(securityService.findLoggedInUsername());
-        model.addAttribute("loggedInUser", user);
+    public String tutorialPage(Model model, @PathVariable("id") UUID tutorialId,
+                               @RequestParam(value = "cursor", required = false) String cursor) throws ServiceException {
+        try (LookupScope lookups = pageLookups.open()) {
+            LookupScope.Lookup<TutorialDto> tutorial = lookups.fork(() -> tutorialService.getTutorialDtoById(tutorialId));
+            LookupScope.Lookup<KeysetPage<ModuleDto>> modules = lookups.fork(() -> contentListCache.getModuleDtoPageByTutorial(tutorialId, cursor, pageSize));
+            LookupScope.Lookup<LoggedInUser> user = lookups.fork(() -> loggedInUserCache.getLoggedInUser());
+            lookups.join();
+            model.addAttribute("Tutorial", tutorial.get());
+            model.addAttribute("ModulesList", modules.get().getItems());
+            model.addAttribute("nextCursor", modules.get().getNextCursor());
+            model.addAttribute("loggedInUser", user.get());
+        }
         return "UserTutorial";
     }
 
+    @GetMapping(value = {"/tutorial/{id}/document"})
+    public void tutorialDocument(@PathVariable("id") UUID tutorialId, HttpServletResponse response) throws ServiceException, IOException {
+        response.setContentType("text/markdown;charset=UTF-8");
+        tutorialDocumentWriter.writeMarkdown(tutorialId, response.getWriter());
+    }
+
     @GetMapping(value = {"/module/{id}"})
-    public String modulePage(Model model, @PathVariable("id") UUID moduleId) throws ServiceException {
-        ModuleDto moduleDto = moduleService.getModuleDtoById(moduleId);
-        Module module = moduleService.getModuleById(moduleId);
-        TutorialDto tutorial = tutorialService.getTutorialDtoById(module.getTutorialId());
-        model.addAttribute("Tutorial", tutorial);
-        model.addAttribute("Module", moduleDto);
-        model.addAttribute("SessionsList", sessionService.getSessionDtoListByModule(moduleId, 0, 100, true));
-        User user = userDetailsService.findByEmail(securityService.findLoggedInUsername());
-        model.addAttribute("loggedInUser", user);
+    public String modulePage(Model model, @PathVariable("id") UUID moduleId,
+                             @RequestParam(value = "cursor", required = false) String cursor) throws ServiceException {
+        NavigationEntry navigation = navigationReadModel.getModuleNavigation(moduleId);
+        try (LookupScope lookups = pageLookups.open()) {
+            LookupScope.Lookup<ModuleDto> moduleDto = lookups.fork(() -> moduleService.getModuleDtoById(moduleId));
+            LookupScope.Lookup<TutorialDto> tutorial = lookups.fork(() -> tutorialService.getTutorialDtoById(navigation.getTutorialId()));
+            LookupScope.Lookup<KeysetPage<SessionDto>> sessions = lookups.fork(() -> contentListCache.getSessionDtoPageByModule(moduleId, cursor, pageSize));
+            LookupScope.Lookup<LoggedInUser> user = lookups.fork(() -> loggedInUserCache.getLoggedInUser());
+            lookups.join();
+            model.addAttribute("Tutorial", tutorial.get());
+            model.addAttribute("Module", moduleDto.get());
+            model.addAttribute("SessionsList", sessions.get().getItems());
+            model.addAttribute("nextCursor", sessions.get().getNextCursor());
+            model.addAttribute("loggedInUser", user.get());
+        }
         return "UserModule";
     }
 
     @GetMapping(value = {"/session/{id}"})
     public String sessionPage(Model model, @PathVariable("id") UUID sessionId) throws ServiceException {
-        SessionDto sessionDto = sessionService.getSessionDtoById(sessionId);
-        Session session = sessionService.getSessionById(sessionId);
-        ModuleDto moduleDto = moduleService.getModuleDtoById(session.getModuleId());
-        Module module = moduleService.getModuleById(session.getModuleId());
-        TutorialDto tutorial = tutorialService.getTutorialDtoById(module.getTutorialId());
-        model.addAttribute("Tutorial", tutorial);
-        model.addAttribute("Module", moduleDto);
-        model.addAttribute("Session", sessionDto);
-        Vector<SessionDto> moduleSessions = new Vector<>(sessionService.getSessionDtoListByModule(module.getId(), 0, 100, true));
-        int indexInList = -1;
-        for (int i=0;i<moduleSessions.size();i++) {
-            if (moduleSessions.elementAt(i).getNumber() == sessionDto.getNumber()) {
-                indexInList = i;
-                break;
+        NavigationEntry navigation = navigationReadModel.getSessionNavigation(sessionId);
+        try (LookupScope lookups = pageLookups.open()) {
+            LookupScope.Lookup<SessionDto> sessionDto = lookups.fork(() -> sessionService.getSessionDtoById(sessionId));
+            LookupScope.Lookup<ModuleDto> moduleDto = lookups.fork(() -> moduleService.getModuleDtoById(navigation.getParentId()));
+            LookupScope.Lookup<TutorialDto> tutorial = lookups.fork(() -> tutorialService.getTutorialDtoById(navigation.getTutorialId()));
+            // the previous and next links only need their titles, both read together
+            LookupScope.Lookup<Map<UUID, String>> siblingTitles = lookups.fork(() -> localizedTextResolver.findTexts(
+                    siblingTitleContentIds(navigation), loggedInUserCache.getPreferredLanguageId()));
+            LookupScope.Lookup<LoggedInUser> user = lookups.fork(() -> loggedInUserCache.getLoggedInUser());
+            lookups.join();
+            // the markdown is built from the session so it can only start once that is loaded
+            String sessionMarkdown = sessionService.buildMarkdownDocSection(1, sessionDto.get(), 1);
+            model.addAttribute("Tutorial", tutorial.get());
+            model.addAttribute("Module", moduleDto.get());
+            model.addAttribute("Session", sessionDto.get());
+            model.addAttribute("prevSession", navigation.getPrevious());
+            model.addAttribute("nextSession", navigation.getNext());
+            if (navigation.getPrevious() != null) {
+                model.addAttribute("prevSessionTitle", siblingTitles.get().get(navigation.getPrevious().getTitleContentId()));
+            }
+            if (navigation.getNext() != null) {
+                model.addAttribute("nextSessionTitle", siblingTitles.get().get(navigation.getNext().getTitleContentId()));
             }
+            model.addAttribute("SessionMarkdown", sessionMarkdown);
+            model.addAttribute("loggedInUser", user.get());
         }
-        SessionDto prevSessionDto = (indexInList > 0) ? moduleSessions.elementAt(indexInList-1) : null;
-        SessionDto nextSessionDto = (indexInList < (moduleSessions.size()-1)) ? moduleSessions.elementAt(indexInList+1) : null;
-        model.addAttribute("prevSession", prevSessionDto);
-        model.addAttribute("nextSession", nextSessionDto);
-        model.addAttribute("SessionMarkdown", sessionService.buildMarkdownDocSection(1, sessionDto, 1));
-        User user = userDetailsService.findByEmail(securityService.findLoggedInUsername());
-        model.addAttribute("loggedInUser", user);
         return "UserSession";
     }
+
+    private static List<UUID> siblingTitleContentIds(NavigationEntry navigation) {
+        List<UUID> contentIds = new ArrayList<>(2);
+        if (navigation.getPrevious() != null && navigation.getPrevious().getTitleContentId() != null) {
+            contentIds.add(navigation.getPrevious().getTitleContentId());
+        }
+        if (navigation.getNext() != null && navigation.getNext().getTitleContentId() != null) {
+            contentIds.add(navigation.getNext().getTitleContentId());
+        }
+        return contentIds;
+    }
 }
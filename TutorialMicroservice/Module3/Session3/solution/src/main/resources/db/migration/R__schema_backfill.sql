@@ -0,0 +1,8 @@
+-- Progress of the online backfills run by OnlineBackfills, one row per backfill.
+create table if not exists schema_backfill (
+    name           text primary key,
+    schema_version integer   not null,
+    last_key       uuid,
+    rows_updated   bigint    not null default 0,
+    completed_on   timestamp
+);
@@ -0,0 +1,115 @@
+package org.entityc.tutorial.bulk;
+
+import org.entityc.tutorial.model.Content;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyOut;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the bulk copy classes against a local Postgres database with the application's schema,
+ * named by the {@code tutorial.test.postgresUrl} system property along with
+ * {@code tutorial.test.postgresUser} and {@code tutorial.test.postgresPassword}. The tests are
+ * skipped when it is not set, and everything they write is rolled back.
+ */
+class BulkCopyTest {
+    private Connection connection;
+
+    enum Level {
+        LOW,
+        HIGH
+    }
+
+    @BeforeEach
+    void connect() throws SQLException {
+        String url = System.getProperty("tutorial.test.postgresUrl");
+        assumeTrue(url != null, "tutorial.test.postgresUrl is not set");
+        connection = DriverManager.getConnection(url, System.getProperty("tutorial.test.postgresUser"),
+                System.getProperty("tutorial.test.postgresPassword"));
+        connection.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void rollback() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    void loadFillsInCreationDateAndTellsListeners() throws SQLException {
+        Content content = new Content();
+        content.setId(UUID.randomUUID());
+        List<String> loadedTables = new ArrayList<>();
+        Consumer<String> listener = loadedTables::add;
+        CopyText.addLoadListener(listener);
+        try {
+            assertEquals(1, ContentBulkCopy.load(connection, Collections.singletonList(content)));
+        } finally {
+            CopyText.removeLoadListener(listener);
+        }
+        assertEquals(Collections.singletonList(ContentBulkCopy.TABLE), loadedTables);
+
+        List<Content> exported = new ArrayList<>();
+        ContentBulkCopy.export(connection, exportedContent -> {
+            if (exportedContent.getId().equals(content.getId())) {
+                exported.add(exportedContent);
+            }
+        });
+        assertEquals(1, exported.size());
+        assertNotNull(exported.get(0).getCreatedOn());
+    }
+
+    @Test
+    void fieldsRoundTrip() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create temp table bulk_copy_test (text varchar, level integer, created timestamp)");
+        }
+        String text = "tab\there\nnew line\\backslash\r";
+        Date created = new Date(1_600_000_000_123L);
+        StringBuilder batch = new StringBuilder();
+        CopyText.append(batch, text);
+        batch.append('\t');
+        CopyText.append(batch, Level.HIGH);
+        batch.append('\t');
+        CopyText.append(batch, created);
+        batch.append('\n');
+        CopyText.append(batch, (String) null);
+        batch.append('\t');
+        CopyText.append(batch, (Level) null);
+        batch.append('\t');
+        CopyText.append(batch, (Date) null);
+        batch.append('\n');
+        CopyIn copyIn = CopyText.copyManager(connection).copyIn("COPY bulk_copy_test FROM STDIN");
+        CopyText.write(copyIn, batch);
+        assertEquals(2, copyIn.endCopy());
+
+        CopyOut copyOut = CopyText.copyManager(connection).copyOut("COPY bulk_copy_test TO STDOUT");
+        String[] first = CopyText.fields(copyOut.readFromCopy(), 3);
+        String[] second = CopyText.fields(copyOut.readFromCopy(), 3);
+        assertNull(copyOut.readFromCopy());
+        assertEquals(text, first[0]);
+        assertEquals(Level.HIGH, CopyText.toEnum(first[1], Level.values()));
+        assertEquals(created, CopyText.toDate(first[2]));
+        assertArrayEquals(new String[3], second);
+    }
+}
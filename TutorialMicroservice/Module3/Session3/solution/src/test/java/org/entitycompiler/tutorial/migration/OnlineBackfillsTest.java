@@ -0,0 +1,135 @@
+package org.entityc.tutorial.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs a backfill against a local Postgres database named by the
+ * {@code tutorial.test.postgresUrl} system property along with {@code tutorial.test.postgresUser}
+ * and {@code tutorial.test.postgresPassword}. The tests are skipped when it is not set. The table
+ * it fills in and its progress are removed afterwards.
+ */
+class OnlineBackfillsTest {
+    private static final String NAME = "online_backfills_test.copy";
+
+    private DriverManagerDataSource dataSource;
+    private OnlineBackfills onlineBackfills;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        String url = System.getProperty("tutorial.test.postgresUrl");
+        assumeTrue(url != null, "tutorial.test.postgresUrl is not set");
+        String username = System.getProperty("tutorial.test.postgresUser", "");
+        String password = System.getProperty("tutorial.test.postgresPassword", "");
+        dataSource = new DriverManagerDataSource(url, username, password);
+        execute("create table if not exists schema_backfill (name text primary key, schema_version integer not null,"
+                + " last_key uuid, rows_updated bigint not null default 0, completed_on timestamp)");
+        execute("drop table if exists online_backfills_test");
+        execute("create table online_backfills_test (test_id uuid primary key, original integer not null, copy integer)");
+        execute("insert into online_backfills_test (test_id, original)"
+                + " select md5(n::text)::uuid, n from generate_series(1, 2500) n");
+        execute("delete from schema_backfill where name = '" + NAME + "'");
+
+        onlineBackfills = new OnlineBackfills();
+        ReflectionTestUtils.setField(onlineBackfills, "dataSource", dataSource);
+        ReflectionTestUtils.setField(onlineBackfills, "url", url);
+        ReflectionTestUtils.setField(onlineBackfills, "username", username);
+        ReflectionTestUtils.setField(onlineBackfills, "password", password);
+        ReflectionTestUtils.setField(onlineBackfills, "backfills", Collections.singletonList(Backfill.of(NAME, 1,
+                "online_backfills_test", "test_id", "copy = original", "copy is null")));
+        ReflectionTestUtils.setField(onlineBackfills, "chunkRows", 1000);
+        ReflectionTestUtils.setField(onlineBackfills, "pauseMillis", 0L);
+        ReflectionTestUtils.setField(onlineBackfills, "lockTimeoutMillis", 2000L);
+        ReflectionTestUtils.setField(onlineBackfills, "maxRetries", 10);
+        ReflectionTestUtils.setField(onlineBackfills, "refreshSeconds", 30L);
+        ReflectionTestUtils.setField(onlineBackfills, "maxSweepPasses", 5);
+        ReflectionTestUtils.invokeMethod(onlineBackfills, "start");
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException {
+        if (onlineBackfills != null) {
+            ReflectionTestUtils.invokeMethod(onlineBackfills, "stop");
+            execute("drop table if exists online_backfills_test");
+            execute("delete from schema_backfill where name = '" + NAME + "'");
+        }
+    }
+
+    @Test
+    void fillsInEveryRowAndSavesCompletion() throws SQLException {
+        ReflectionTestUtils.invokeMethod(onlineBackfills, "runAll");
+
+        assertTrue(onlineBackfills.isCompleted(NAME));
+        assertTrue(onlineBackfills.getPendingBackfills().isEmpty());
+        assertEquals(2500, onlineBackfills.getRowsUpdated());
+        assertEquals(0, queryLong("select count(*) from online_backfills_test where copy is distinct from original"));
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select rows_updated, completed_on from schema_backfill where name = ?")) {
+            statement.setString(1, NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(2500, resultSet.getLong(1));
+                assertNotNull(resultSet.getTimestamp(2));
+            }
+        }
+    }
+
+    @Test
+    void carriesOnFromTheSavedKey() throws SQLException {
+        // as if a run had stopped after the first 1000 keys
+        execute("update online_backfills_test set copy = original where test_id in"
+                + " (select test_id from online_backfills_test order by test_id limit 1000)");
+        execute("insert into schema_backfill (name, schema_version, last_key, rows_updated)"
+                + " select '" + NAME + "', 1, test_id, 1000 from online_backfills_test order by test_id offset 999 limit 1");
+
+        ReflectionTestUtils.invokeMethod(onlineBackfills, "runAll");
+
+        assertTrue(onlineBackfills.isCompleted(NAME));
+        assertEquals(1500, onlineBackfills.getRowsUpdated());
+        assertEquals(0, queryLong("select count(*) from online_backfills_test where copy is distinct from original"));
+    }
+
+    @Test
+    void leavesTheBackfillsToTheInstanceHoldingTheLock() throws SQLException {
+        try (Connection otherInstance = dataSource.getConnection();
+             Statement statement = otherInstance.createStatement()) {
+            statement.execute("select pg_advisory_lock(hashtext('schema_backfill'))");
+            ReflectionTestUtils.invokeMethod(onlineBackfills, "runAll");
+        }
+
+        assertEquals(Collections.singletonMap(NAME, 1), onlineBackfills.getPendingBackfills());
+        assertEquals(2500, queryLong("select count(*) from online_backfills_test where copy is null"));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}